@@ -0,0 +1,159 @@
+package com.reactnativechangeicon;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowApplicationPackageManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * Timed harness for the manager's hot paths. Run with {@code ./gradlew test -Pbenchmark}; results
+ * are printed per alias count as ops/sec and bytes allocated per op.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ChangeIconBenchmark {
+    private static final int[] ALIAS_COUNTS = {2, 50, 500};
+    private static final long WARMUP_NANOS = 500_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+    private static final int BATCH = 100;
+    private static final Executor DIRECT = Runnable::run;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void lookup() {
+        for (int count : ALIAS_COUNTS) {
+            final AliasFixture fixture = new AliasFixture(count);
+            final ChangeIconManager manager = fixture.newManager(
+                new InMemoryComponentStateBackend(), AliasFixture.newStateDir(), DIRECT);
+            final AliasRegistry registry = manager.getRegistry();
+            measure("getIcon", count, manager::getIcon);
+            final int[] cursor = {0};
+            measure("registry.get", count, () -> registry.get(fixture.names[cursor[0]++ % count]));
+        }
+    }
+
+    @Test
+    public void change() {
+        for (int count : ALIAS_COUNTS) {
+            final AliasFixture fixture = new AliasFixture(count);
+            final ChangeIconManager manager = fixture.newManager(
+                new InMemoryComponentStateBackend(), AliasFixture.newStateDir(), DIRECT);
+            manager.setCommitPolicy(CommitPolicy.ON_PAUSE);
+            measure("changeIcon", count, cycle(manager, fixture.names));
+        }
+    }
+
+    // Commits go through PackageManagerBackend into Robolectric's PackageManager, so the batched
+    // call on API 33 and the per-alias calls before it are both counted.
+    @Test
+    @Config(sdk = {28, 33}, shadows = CountingPackageManager.class)
+    public void commit() {
+        for (int count : ALIAS_COUNTS) {
+            final AliasFixture fixture = new AliasFixture(count);
+            final ComponentStateBackend backend = new PackageManagerBackend(
+                fixture.application.getPackageManager(), new IconMetrics());
+            final ChangeIconManager manager = fixture.newManager(
+                new CachingComponentStateBackend(backend), AliasFixture.newStateDir(), DIRECT);
+            manager.setCommitPolicy(CommitPolicy.IMMEDIATE);
+            final Runnable step = cycle(manager, fixture.names);
+            final long[] transitions = {0};
+            CountingPackageManager.reset();
+            measure("changeIcon+commit", count, () -> {
+                step.run();
+                transitions[0]++;
+            });
+
+            final double calls = (double) CountingPackageManager.calls / transitions[0];
+            final double writes = (double) CountingPackageManager.writes / transitions[0];
+            System.out.println(String.format(Locale.ROOT,
+                "%-20s aliases=%-4d sdk=%d %.2f calls/transition, %.2f writes/transition",
+                "packageManager", count, Build.VERSION.SDK_INT, calls, writes));
+            // Enabling the target and disabling the previous icon is one batched call from API 33.
+            assertEquals(Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU ? 1.0 : 2.0, calls, 0.0);
+            assertEquals(2.0, writes, 0.0);
+        }
+    }
+
+    @Implements(className = "android.app.ApplicationPackageManager", isInAndroidSdk = false)
+    public static class CountingPackageManager extends ShadowApplicationPackageManager {
+        static long calls;
+        static long writes;
+
+        static void reset() {
+            calls = 0;
+            writes = 0;
+        }
+
+        @Override
+        @Implementation
+        protected void setComponentEnabledSetting(ComponentName componentName, int newState, int flags) {
+            calls++;
+            writes++;
+            super.setComponentEnabledSetting(componentName, newState, flags);
+        }
+
+        @Implementation(minSdk = Build.VERSION_CODES.TIRAMISU)
+        protected void setComponentEnabledSettings(List<PackageManager.ComponentEnabledSetting> settings) {
+            calls++;
+            for (PackageManager.ComponentEnabledSetting setting : settings) {
+                writes++;
+                super.setComponentEnabledSetting(
+                    setting.getComponentName(), setting.getEnabledState(), setting.getEnabledFlags());
+            }
+        }
+    }
+
+    // Moves to the next icon on every call, so each call is a real transition.
+    private static Runnable cycle(ChangeIconManager manager, String[] names) {
+        final int[] cursor = {0};
+        return () -> {
+            cursor[0] = (cursor[0] + 1) % names.length;
+            try {
+                manager.changeIcon(names[cursor[0]]);
+            } catch (ChangeIconException e) {
+                throw new AssertionError(e.getCode(), e);
+            }
+        };
+    }
+
+    private static void measure(String name, int aliases, Runnable op) {
+        run(op, WARMUP_NANOS);
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        final long start = System.nanoTime();
+        final long ops = run(op, MEASURE_NANOS);
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.println(String.format(Locale.ROOT,
+            "%-20s aliases=%-4d %,14.0f ops/s %10.1f B/op",
+            name, aliases, ops * 1e9 / elapsed, (double) allocated / ops));
+    }
+
+    private static long run(Runnable op, long durationNanos) {
+        final long deadline = System.nanoTime() + durationNanos;
+        long ops = 0;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                op.run();
+            }
+            ops += BATCH;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactnativechangeicon;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of the launcher aliases declared as {@code <activity-alias>} entries named
+ * {@code <packageName>.MainActivity<icon>}. Built from the generated {@link IconRegistry} when the
+ * build found the aliases, otherwise once from a single PackageManager query.
+ */
+public final class AliasRegistry {
+    private final List<IconAlias> aliases;
+    private final Map<String, IconAlias> byName;
+
+    AliasRegistry(List<IconAlias> aliases) {
+        Map<String, IconAlias> byName = new HashMap<>(aliases.size() * 2);
+        for (int i = 0; i < aliases.size(); i++) {
+            final IconAlias alias = aliases.get(i);
+            if (alias.getOrdinal() != i) {
+                throw new IllegalArgumentException("Alias " + alias.getName() + " has ordinal " + alias.getOrdinal() + ", expected " + i);
+            }
+            byName.put(alias.getName(), alias);
+        }
+        this.aliases = Collections.unmodifiableList(new ArrayList<>(aliases));
+        this.byName = byName;
+    }
+
+    public static AliasRegistry load(Context context, String packageName) {
+        final String prefix = packageName + ".MainActivity";
+        if (IconRegistry.ICON_NAMES.length > 0 && prefix.equals(IconRegistry.ALIAS_PREFIX)) {
+            return fromGenerated(context);
+        }
+        return query(context, prefix);
+    }
+
+    private static AliasRegistry fromGenerated(Context context) {
+        List<IconAlias> aliases = new ArrayList<>(IconRegistry.ICON_NAMES.length);
+        for (int i = 0; i < IconRegistry.ICON_NAMES.length; i++) {
+            aliases.add(new IconAlias(
+                i,
+                IconRegistry.ICON_NAMES[i],
+                new ComponentName(context.getPackageName(), IconRegistry.ALIAS_PREFIX + IconRegistry.ICON_NAMES[i]),
+                IconRegistry.ENABLED_BY_DEFAULT[i]
+            ));
+        }
+        return new AliasRegistry(aliases);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static AliasRegistry query(Context context, String prefix) {
+        final int flags = PackageManager.GET_ACTIVITIES | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            ? PackageManager.MATCH_DISABLED_COMPONENTS
+            : PackageManager.GET_DISABLED_COMPONENTS);
+        List<IconAlias> aliases = new ArrayList<>();
+        Trace.beginSection("ChangeIcon.getPackageInfo");
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), flags);
+            if (info.activities != null) {
+                for (ActivityInfo activity : info.activities) {
+                    if (activity.targetActivity == null || !activity.name.startsWith(prefix)) continue;
+                    String icon = activity.name.substring(prefix.length());
+                    if (icon.isEmpty()) continue;
+                    aliases.add(new IconAlias(
+                        aliases.size(),
+                        icon,
+                        new ComponentName(activity.packageName, activity.name),
+                        activity.enabled
+                    ));
+                }
+            }
+        } catch (PackageManager.NameNotFoundException ignored) {
+        } finally {
+            Trace.endSection();
+        }
+        return new AliasRegistry(aliases);
+    }
+
+    public IconAlias get(String name) {
+        return byName.get(name);
+    }
+
+    /** Returns the alias with the given {@link IconAlias#getOrdinal() ordinal}. */
+    IconAlias get(int ordinal) {
+        return aliases.get(ordinal);
+    }
+
+    public List<IconAlias> getAliases() {
+        return aliases;
+    }
+
+    public int size() {
+        return aliases.size();
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactnativechangeicon;
+
+import android.content.ComponentName;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Write-through cache of the last known state of each component. Writes that would not change
+ * that state are dropped before they reach the delegate, saving a restrictions-file flush and a
+ * PACKAGE_CHANGED broadcast each. Reads always go to the delegate and refresh the cache.
+ */
+final class CachingComponentStateBackend implements ComponentStateBackend {
+    private final ComponentStateBackend delegate;
+    private final Map<ComponentName, Integer> knownStates = new HashMap<>();
+
+    CachingComponentStateBackend(ComponentStateBackend delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int getComponentEnabledSetting(ComponentName component) {
+        final int setting = delegate.getComponentEnabledSetting(component);
+        synchronized (knownStates) {
+            knownStates.put(component, setting);
+        }
+        return setting;
+    }
+
+    @Override
+    public void setComponentEnabledSettings(ComponentChanges changes) {
+        final ComponentChanges effective = new ComponentChanges();
+        synchronized (knownStates) {
+            for (int i = 0; i < changes.size(); i++) {
+                final Integer known = knownStates.get(changes.getComponent(i));
+                if (known == null || known != changes.getState(i)) {
+                    effective.add(changes.getComponent(i), changes.getState(i));
+                }
+            }
+        }
+        if (effective.isEmpty()) return;
+        delegate.setComponentEnabledSettings(effective);
+        synchronized (knownStates) {
+            for (int i = 0; i < effective.size(); i++) {
+                knownStates.put(effective.getComponent(i), effective.getState(i));
+            }
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (knownStates) {
+            knownStates.clear();
+        }
+    }
+}
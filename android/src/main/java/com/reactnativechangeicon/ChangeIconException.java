@@ -0,0 +1,26 @@
+package com.reactnativechangeicon;
+
+/**
+ * Rejection raised by {@link ChangeIconManager}. The code is the same string the JS promise is
+ * rejected with.
+ */
+public class ChangeIconException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public static final String EMPTY_ICON_STRING = "EMPTY_ICON_STRING";
+    public static final String ICON_INVALID = "ICON_INVALID";
+    public static final String ICON_ALREADY_USED = "ICON_ALREADY_USED";
+    public static final String ICON_MISMATCH = "ICON_MISMATCH";
+    public static final String COMMIT_FAILED = "COMMIT_FAILED";
+
+    private final String code;
+
+    public ChangeIconException(String code) {
+        super(code);
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,770 @@
+package com.reactnativechangeicon;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process-wide owner of the alias registry, icon state and commit logic. Needs only a
+ * {@link Context}, so icons can be changed from {@code Application.onCreate} or a service without
+ * starting React Native; {@link ChangeIconModule} is a thin bridge over it.
+ */
+public final class ChangeIconManager {
+    private static final String TAG = "ChangeIcon";
+    private static final String ALIAS_CLASS = ".MainActivity";
+    private static volatile ChangeIconManager instance;
+    private static Executor instanceExecutor;
+
+    private final Context context;
+    private final String packageName;
+    private final CommitScheduler commitScheduler;
+    private final IconStateStore store;
+    private final ProcessLock processLock;
+    private final TransitionJournal journal;
+    private final ComponentStateBackend backend;
+    private final File scheduleFile;
+    private final CommitThrottle throttle;
+    private final IconMetrics metrics;
+    private final AtomicBoolean deferredCommitScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean syncScheduled = new AtomicBoolean(false);
+    private final List<IconChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<IconState> state = new AtomicReference<>(IconState.UNRESOLVED);
+    private final Executor executor;
+    private volatile CommitPolicy commitPolicy = CommitPolicy.ON_PAUSE;
+    private volatile ComponentStateSnapshot componentSnapshot;
+    private volatile IconSchedule schedule;
+    private volatile long pendingSinceNanos;
+    private volatile int storeSequence = -1;
+    private BroadcastReceiver timeChangeReceiver;
+    private AliasRegistry registry;
+
+    /**
+     * Like {@link #getInstance(Context, String)}, with the alias prefix the build found in the
+     * manifest. That stays right when {@code applicationIdSuffix} changes the package name; without
+     * generated aliases the context's package name is used.
+     */
+    public static ChangeIconManager getInstance(Context context) {
+        return getInstance(context, defaultAliasPackage(context));
+    }
+
+    private static String defaultAliasPackage(Context context) {
+        final String prefix = IconRegistry.ALIAS_PREFIX;
+        if (IconRegistry.ICON_NAMES.length > 0 && prefix != null && prefix.endsWith(ALIAS_CLASS)) {
+            return prefix.substring(0, prefix.length() - ALIAS_CLASS.length());
+        }
+        return context.getPackageName();
+    }
+
+    public static ChangeIconManager getInstance(Context context, String packageName) {
+        return getInstance(context, packageName, null);
+    }
+
+    /**
+     * Returns the process-wide manager, creating it on first call. {@code packageName} is the
+     * prefix of the {@code <packageName>.MainActivity<icon>} aliases. {@code executor}, if not
+     * {@code null}, runs the manager's tasks instead of its own thread; they stay serialized. Only
+     * the first caller's values are used; different ones later are logged and ignored.
+     */
+    public static ChangeIconManager getInstance(Context context, String packageName, Executor executor) {
+        ChangeIconManager manager = instance;
+        if (manager == null) {
+            synchronized (ChangeIconManager.class) {
+                manager = instance;
+                if (manager == null) {
+                    final Context appContext = context.getApplicationContext();
+                    final IconMetrics metrics = new IconMetrics();
+                    manager = new ChangeIconManager(
+                        appContext,
+                        packageName,
+                        new CachingComponentStateBackend(new PackageManagerBackend(appContext.getPackageManager(), metrics)),
+                        new File(appContext.getNoBackupFilesDir(), "react-native-change-icon"),
+                        executor != null ? new SerialExecutor(executor) : newDefaultExecutor(),
+                        CommitThrottle.SYSTEM_CLOCK,
+                        metrics
+                    );
+                    instanceExecutor = executor;
+                    instance = manager;
+                    return manager;
+                }
+            }
+        }
+        if (executor != null) {
+            synchronized (ChangeIconManager.class) {
+                if (executor != instanceExecutor) {
+                    Log.w(TAG, "The icon manager already runs on its first executor, ignoring a later one");
+                }
+            }
+        }
+        if (!manager.packageName.equals(packageName)) {
+            Log.w(TAG, "Icon aliases stay under " + manager.packageName + ALIAS_CLASS
+                + ", ignoring " + packageName + ALIAS_CLASS + " from a later getInstance call");
+        }
+        return manager;
+    }
+
+    // A single worker that exits when idle, so the process-wide manager holds no thread for nothing.
+    private static Executor newDefaultExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1, 1, 10, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> new Thread(runnable, "ChangeIcon")
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    ChangeIconManager(
+        Context context,
+        String packageName,
+        ComponentStateBackend backend,
+        File stateDir,
+        Executor executor,
+        CommitThrottle.Clock clock,
+        IconMetrics metrics
+    ) {
+        this.context = context;
+        this.packageName = packageName;
+        this.backend = backend;
+        this.executor = executor;
+        this.store = new IconStateStore(new File(stateDir, "state"));
+        this.processLock = ProcessLock.forFile(new File(stateDir, "lock"));
+        this.journal = new TransitionJournal(new File(stateDir, "journal"));
+        this.scheduleFile = new File(stateDir, "schedule");
+        this.throttle = new CommitThrottle(clock, new File(stateDir, "throttle"), this.processLock);
+        this.metrics = metrics;
+        this.commitScheduler = new CommitScheduler(
+            context instanceof Application ? (Application) context : null,
+            new CommitScheduler.Listener() {
+                @Override
+                public void onCommitPoint(CommitPolicy point) {
+                    ChangeIconManager.this.onCommitPoint(point);
+                }
+
+                @Override
+                public void onActivityResumed() {
+                    if (store.getSequence() != storeSequence) scheduleSync();
+                }
+            }
+        );
+        this.commitScheduler.attach();
+        this.executor.execute(this::initialize);
+        this.executor.execute(this::loadSchedule);
+    }
+
+    void execute(Runnable task) {
+        this.executor.execute(task);
+    }
+
+    public CommitPolicy getCommitPolicy() {
+        return this.commitPolicy;
+    }
+
+    public void setCommitPolicy(CommitPolicy policy) {
+        this.commitPolicy = policy;
+        if (policy == CommitPolicy.IMMEDIATE) {
+            commitPendingChange();
+        }
+    }
+
+    /** The policy that decides when the pending change is committed. */
+    public CommitPolicy getEffectiveCommitPolicy() {
+        return effectivePolicy(resolveState());
+    }
+
+    private CommitPolicy effectivePolicy(IconState state) {
+        final CommitPolicy pendingPolicy = state.getPendingPolicy();
+        return pendingPolicy != null ? pendingPolicy : this.commitPolicy;
+    }
+
+    // Called on the main thread, so only the lock-free snapshot is read here; resolving and
+    // committing happen on the executor. Resolving there picks up changes other processes made
+    // pending, so the process that owns the activities commits them too. Those processes'
+    // IMMEDIATE changes go at the next commit point.
+    private void onCommitPoint(final CommitPolicy point) {
+        final IconState current = this.state.get();
+        if (current.isResolved() && current.getPending() == null && this.store.getSequence() == this.storeSequence) {
+            return;
+        }
+        this.executor.execute(() -> {
+            this.processLock.lock();
+            try {
+                final IconState resolved = resolveStateLocked();
+                if (resolved.getPending() == null) return;
+                final CommitPolicy policy = effectivePolicy(resolved);
+                if (policy == point || policy == CommitPolicy.IMMEDIATE) {
+                    completeIconChangeLocked();
+                }
+            } finally {
+                this.processLock.unlock();
+            }
+        });
+    }
+
+    private void onChangeRequested() {
+        if (getEffectiveCommitPolicy() == CommitPolicy.IMMEDIATE) {
+            commitPendingChange();
+        }
+    }
+
+    public void addListener(IconChangeListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(IconChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    public IconMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public void setMetricsSink(MetricsSink sink) {
+        this.metrics.setSink(sink);
+    }
+
+    /** Limits how often commits reach the launcher; see {@link CommitThrottle#configure}. */
+    public CommitThrottle getThrottle() {
+        return this.throttle;
+    }
+
+    public synchronized AliasRegistry getRegistry() {
+        if (this.registry == null) {
+            this.registry = AliasRegistry.load(this.context, this.packageName);
+        }
+        return this.registry;
+    }
+
+    public List<String> getAvailableIcons() {
+        final List<IconAlias> aliases = getRegistry().getAliases();
+        final List<String> names = new ArrayList<>(aliases.size());
+        for (IconAlias alias : aliases) {
+            names.add(alias.getName());
+        }
+        return names;
+    }
+
+    /** Returns the icon that is shown once any pending change is committed, or "default". */
+    public String getIcon() {
+        return nameOrDefault(resolveState().getCurrent());
+    }
+
+    /**
+     * Makes {@code iconName} the pending icon. The launcher is updated when the commit policy
+     * fires, or right away through {@link #commitPendingChange()}, unless the throttle defers it.
+     * Waits for the process lock, which a commit in another process may hold, so call it off the
+     * main thread.
+     */
+    public ChangeStatus changeIcon(String iconName) throws ChangeIconException {
+        return changeIconIfCurrent(null, iconName, null);
+    }
+
+    /**
+     * Like {@link #changeIcon(String)}, but only if the current icon (pending or committed, "default"
+     * when none) is still {@code expected}. The check and the update happen atomically.
+     */
+    public ChangeStatus changeIconIfCurrent(String expected, String iconName) throws ChangeIconException {
+        return changeIconIfCurrent(expected, iconName, null);
+    }
+
+    /**
+     * Atomic icon transaction: moves from {@code expected} (any icon if {@code null}) to
+     * {@code iconName}, committing it with {@code commitPolicy} instead of the manager's policy
+     * when one is given.
+     */
+    public ChangeStatus changeIconIfCurrent(String expected, String iconName, CommitPolicy commitPolicy)
+        throws ChangeIconException {
+        if (iconName == null || iconName.isEmpty()) {
+            throw reject(ChangeIconException.EMPTY_ICON_STRING);
+        }
+        final IconAlias alias = getRegistry().get(iconName);
+        if (alias == null) {
+            throw reject(ChangeIconException.ICON_INVALID);
+        }
+        IconState current;
+        IconState next;
+        // Held so the check and the stored state cannot race a change made by another process.
+        this.processLock.lock();
+        try {
+            do {
+                current = resolveStateLocked();
+                if (expected != null && !expected.equals(nameOrDefault(current.getCurrent()))) {
+                    throw reject(ChangeIconException.ICON_MISMATCH);
+                }
+                if (alias == current.getCurrent()) {
+                    throw reject(ChangeIconException.ICON_ALREADY_USED);
+                }
+                // Only the latest target matters until the next commit; switching back cancels it.
+                next = current.withPending(alias, commitPolicy);
+            } while (!this.state.compareAndSet(current, next));
+            if (current.getPending() == null && next.getPending() != null) {
+                this.pendingSinceNanos = System.nanoTime();
+            }
+            persist();
+        } finally {
+            this.processLock.unlock();
+        }
+        for (IconChangeListener listener : this.listeners) {
+            listener.onIconChangeRequested(iconName);
+        }
+        if (next.getPending() != null) {
+            onChangeRequested();
+        }
+        return getChangeStatus(iconName);
+    }
+
+    private static String nameOrDefault(IconAlias alias) {
+        return alias == null ? "default" : alias.getName();
+    }
+
+    private ChangeIconException reject(String code) {
+        this.metrics.recordRejection(code);
+        return new ChangeIconException(code);
+    }
+
+    /** Reports whether a previously requested icon has been committed, is waiting or was replaced. */
+    public ChangeStatus getChangeStatus(String iconName) {
+        final IconState current = resolveState();
+        final IconAlias pending = current.getPending();
+        if (pending != null) {
+            if (!pending.getName().equals(iconName)) return ChangeStatus.SUPERSEDED;
+            return this.throttle.getDelayMillis() > 0 ? ChangeStatus.DEFERRED : ChangeStatus.PENDING;
+        }
+        final IconAlias committed = current.getCommitted();
+        return committed != null && committed.getName().equals(iconName) ? ChangeStatus.APPLIED : ChangeStatus.SUPERSEDED;
+    }
+
+    /** Commits the pending change, if any, on the manager's executor. */
+    public void commitPendingChange() {
+        this.executor.execute(this::completeIconChange);
+    }
+
+    /**
+     * Replaces the icon schedule. It is stored, evaluated now and re-evaluated at every process
+     * start and whenever the system time or date changes, with no JS involved.
+     */
+    public void setSchedule(final IconSchedule schedule) {
+        this.executor.execute(() -> {
+            try {
+                schedule.writeTo(this.scheduleFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to store icon schedule", e);
+            }
+            this.schedule = schedule;
+            updateTimeChangeReceiver();
+            evaluateSchedule();
+        });
+    }
+
+    public void clearSchedule() {
+        this.executor.execute(() -> {
+            if (this.scheduleFile.exists() && !this.scheduleFile.delete()) {
+                Log.w(TAG, "Unable to delete icon schedule");
+            }
+            this.schedule = null;
+            updateTimeChangeReceiver();
+        });
+    }
+
+    private void loadSchedule() {
+        try {
+            this.schedule = IconSchedule.readFrom(this.scheduleFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read icon schedule", e);
+        }
+        updateTimeChangeReceiver();
+        evaluateSchedule();
+    }
+
+    private void evaluateSchedule() {
+        final IconSchedule schedule = this.schedule;
+        if (schedule == null) return;
+        final String icon = schedule.iconAt(System.currentTimeMillis());
+        if (icon == null || icon.equals(getIcon())) return;
+        try {
+            changeIcon(icon);
+        } catch (ChangeIconException e) {
+            Log.w(TAG, "Scheduled icon " + icon + " rejected: " + e.getCode());
+            notifyFailed(icon, e.getCode());
+        }
+    }
+
+    private synchronized void updateTimeChangeReceiver() {
+        final boolean needed = this.schedule != null && !this.schedule.isEmpty();
+        if (needed && this.timeChangeReceiver == null) {
+            this.timeChangeReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    executor.execute(ChangeIconManager.this::evaluateSchedule);
+                }
+            };
+            final IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_DATE_CHANGED);
+            this.context.registerReceiver(this.timeChangeReceiver, filter);
+        } else if (!needed && this.timeChangeReceiver != null) {
+            this.context.unregisterReceiver(this.timeChangeReceiver);
+            this.timeChangeReceiver = null;
+        }
+    }
+
+    IconState getState() {
+        return resolveState();
+    }
+
+    CommitScheduler getCommitScheduler() {
+        return this.commitScheduler;
+    }
+
+    ComponentStateSnapshot getCachedComponentSnapshot() {
+        return this.componentSnapshot;
+    }
+
+    // Issues one binder call per alias; only call it from the executor.
+    ComponentStateSnapshot refreshComponentSnapshot() {
+        final ComponentStateSnapshot snapshot = ComponentStateSnapshot.read(this.backend, getRegistry());
+        this.componentSnapshot = snapshot;
+        return snapshot;
+    }
+
+    // Component states changed. Rather than re-reading every alias per commit, getIconState
+    // re-reads them on the executor the next time it is called.
+    private void discardComponentSnapshot() {
+        this.componentSnapshot = null;
+    }
+
+    // Lock-free, so any thread may read. State is only written under the process lock: a change
+    // another process stored is shown from the store right away and adopted on the executor.
+    private IconState resolveState() {
+        final IconState current = this.state.get();
+        if (current.isResolved() && this.store.getSequence() == this.storeSequence) return current;
+        scheduleSync();
+        final IconState latest = this.state.get();
+        if (latest.isResolved() && this.store.getSequence() == this.storeSequence) return latest;
+        return peekStore(latest);
+    }
+
+    private IconState peekStore(IconState current) {
+        final AliasRegistry registry = getRegistry();
+        final IconStateStore.Snapshot stored = this.store.load();
+        final IconAlias committed = stored == null || stored.committed == null ? null : registry.get(stored.committed);
+        if (committed == null) {
+            // Before the first load of an install nothing is stored yet; PackageManager has the answer.
+            return current.isResolved() ? current : readPackageManagerState(registry);
+        }
+        final IconAlias pending = stored.pending == null ? null : registry.get(stored.pending);
+        if (current.isResolved()) return current.withStored(committed, pending);
+        final BitSet enabled = new BitSet(registry.size());
+        enabled.set(committed.getOrdinal());
+        return IconState.resolved(committed, pending, enabled);
+    }
+
+    private void scheduleSync() {
+        if (this.syncScheduled.compareAndSet(false, true)) {
+            this.executor.execute(this::syncFromStore);
+        }
+    }
+
+    private void syncFromStore() {
+        this.syncScheduled.set(false);
+        this.processLock.lock();
+        try {
+            resolveStateLocked();
+        } finally {
+            this.processLock.unlock();
+        }
+    }
+
+    // Only call it while holding the process lock.
+    private IconState resolveStateLocked() {
+        final IconState current = this.state.get();
+        if (!current.isResolved()) return loadStateLocked();
+        // Another process may have changed or committed the icon since this one last looked.
+        return this.store.getSequence() == this.storeSequence ? current : adoptStoredLocked();
+    }
+
+    // Reads the shared state file instead of PackageManager, so other processes cost nothing here.
+    private IconState adoptStoredLocked() {
+        // Another process wrote the store, so it may also have changed component states behind the cache.
+        this.backend.invalidate();
+        discardComponentSnapshot();
+        // Holding the lock, an odd sequence can only come from a writer that died mid-save.
+        this.store.discardIfTorn();
+        final IconStateStore.Snapshot stored = this.store.load();
+        final IconState current = this.state.get();
+        final AliasRegistry registry = getRegistry();
+        final IconAlias committed = stored == null || stored.committed == null ? null : registry.get(stored.committed);
+        if (committed == null) {
+            // Nothing usable is stored, so this process's state is written back for the others.
+            persist();
+            return current;
+        }
+        final IconState next = current.withStored(committed, stored.pending == null ? null : registry.get(stored.pending));
+        this.state.set(next);
+        this.storeSequence = stored.sequence;
+        if (next.getPending() != null && next.getPending() != current.getPending()) {
+            // Another process requested it, so request-to-commit is timed from when this one saw it.
+            this.pendingSinceNanos = System.nanoTime();
+        }
+        notifyAdopted(current, next);
+        return next;
+    }
+
+    // Listeners, such as the JS getIcon cache, learn about changes made in other processes too.
+    private void notifyAdopted(IconState previous, IconState adopted) {
+        final boolean committedChanged = adopted.getCommitted() != previous.getCommitted();
+        if (committedChanged) {
+            for (IconChangeListener listener : this.listeners) {
+                listener.onIconChangeCommitted(adopted.getCommitted().getName());
+            }
+        }
+        // A newly pending icon, or a pending change that was cancelled without a commit.
+        if (adopted.getCurrent() != previous.getCurrent() && (adopted.getPending() != null || !committedChanged)) {
+            final String icon = nameOrDefault(adopted.getCurrent());
+            for (IconChangeListener listener : this.listeners) {
+                listener.onIconChangeRequested(icon);
+            }
+        }
+    }
+
+    private IconState loadStateLocked() {
+        final IconState current = this.state.get();
+        if (current.isResolved()) return current;
+        final AliasRegistry registry = getRegistry();
+        // Holding the lock, an odd sequence can only come from a writer that died mid-save.
+        this.store.discardIfTorn();
+        final IconStateStore.Snapshot stored = this.store.load();
+        final IconAlias storedCommitted = stored == null || stored.committed == null ? null : registry.get(stored.committed);
+        IconState resolved;
+        if (storedCommitted != null) {
+            final BitSet enabled = new BitSet(registry.size());
+            enabled.set(storedCommitted.getOrdinal());
+            resolved = IconState.resolved(
+                storedCommitted,
+                stored.pending == null ? null : registry.get(stored.pending),
+                enabled
+            );
+        } else {
+            resolved = readPackageManagerState(registry);
+        }
+        this.state.set(resolved);
+        if (storedCommitted == null) {
+            persist();
+        } else {
+            this.storeSequence = stored.sequence;
+        }
+        return resolved;
+    }
+
+    // Queued first by the constructor, so startup replay runs on the executor before any commit.
+    private void initialize() {
+        this.processLock.lock();
+        try {
+            resolveStateLocked();
+        } finally {
+            this.processLock.unlock();
+        }
+        if (this.journal.readIncomplete() != null) {
+            replayJournal();
+        } else if (this.state.get().getPending() != null) {
+            this.pendingSinceNanos = System.nanoTime();
+            onChangeRequested();
+        }
+    }
+
+    // Finishes a transition interrupted by process death. Until it runs, readers see the stored state.
+    private void replayJournal() {
+        this.processLock.lock();
+        try {
+            final TransitionJournal.Entry incomplete = this.journal.readIncomplete();
+            if (incomplete == null) return;
+            IconAlias replayed = null;
+            try {
+                replayed = replay(getRegistry(), incomplete);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Unable to replay icon change to " + incomplete.target, e);
+            }
+            if (replayed != null) {
+                IconState current;
+                do {
+                    current = resolveStateLocked();
+                } while (!this.state.compareAndSet(current, current.afterCommit(replayed)));
+                persist();
+            }
+            this.journal.markCommitted(incomplete.target);
+        } finally {
+            this.processLock.unlock();
+        }
+        if (resolveState().getPending() != null) {
+            this.pendingSinceNanos = System.nanoTime();
+            onChangeRequested();
+        }
+    }
+
+    // Writes are skipped if they already landed.
+    private IconAlias replay(AliasRegistry registry, TransitionJournal.Entry entry) {
+        final IconAlias target = registry.get(entry.target);
+        if (target == null) return null;
+        if (!entry.enabled) {
+            final ComponentChanges changes = new ComponentChanges().enable(target.getComponentName());
+            for (String name : entry.disable) {
+                final IconAlias alias = registry.get(name);
+                if (alias != null && alias != target) changes.disable(alias.getComponentName());
+            }
+            this.backend.setComponentEnabledSettings(changes);
+            discardComponentSnapshot();
+            this.journal.markEnabled(entry.target);
+        }
+        return target;
+    }
+
+    // Only runs once per install, when there is no stored state to start from.
+    private IconState readPackageManagerState(AliasRegistry registry) {
+        final BitSet enabled = new BitSet(registry.size());
+        for (IconAlias alias : registry.getAliases()) {
+            final int setting = this.backend.getComponentEnabledSetting(alias.getComponentName());
+            if (setting == PackageManager.COMPONENT_ENABLED_STATE_ENABLED
+                || (setting == PackageManager.COMPONENT_ENABLED_STATE_DEFAULT && alias.isEnabledByDefault())) {
+                enabled.set(alias.getOrdinal());
+            }
+        }
+        final int first = enabled.nextSetBit(0);
+        return IconState.resolved(first < 0 ? null : registry.get(first), null, enabled);
+    }
+
+    private void persist() {
+        this.processLock.lock();
+        try {
+            final IconState current = this.state.get();
+            this.storeSequence = this.store.save(nameOf(current.getCommitted()), nameOf(current.getPending()));
+        } finally {
+            this.processLock.unlock();
+        }
+    }
+
+    static String nameOf(IconAlias alias) {
+        return alias == null ? null : alias.getName();
+    }
+
+    // Always runs on the serial executor, and under the process lock, so at most one commit is in
+    // flight across all processes. A change another process already committed is not written again.
+    private void completeIconChange() {
+        this.processLock.lock();
+        try {
+            completeIconChangeLocked();
+        } finally {
+            this.processLock.unlock();
+        }
+    }
+
+    private void completeIconChangeLocked() {
+        final IconState snapshot = resolveStateLocked();
+        final IconAlias target = snapshot.getPending();
+        if (target == null) return;
+        // Other processes may have committed or changed the throttle settings since the last look.
+        this.throttle.reload();
+        final long delay = this.throttle.getDelayMillis();
+        if (delay > 0) {
+            deferCommit(delay);
+            return;
+        }
+        final long start = System.nanoTime();
+        final ComponentChanges changes = new ComponentChanges().enable(target.getComponentName());
+        final AliasRegistry registry = getRegistry();
+        final List<String> disabled = new ArrayList<>();
+        for (int i = snapshot.nextEnabled(0); i >= 0; i = snapshot.nextEnabled(i + 1)) {
+            if (i == target.getOrdinal()) continue;
+            final IconAlias alias = registry.get(i);
+            changes.disable(alias.getComponentName());
+            disabled.add(alias.getName());
+        }
+        this.journal.begin(target.getName(), disabled);
+        try {
+            this.backend.setComponentEnabledSettings(changes);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to commit icon change to " + target.getName(), e);
+            discardComponentSnapshot();
+            IconState current;
+            IconState failed;
+            do {
+                current = this.state.get();
+                failed = current.afterFailedCommit(target);
+            } while (!this.state.compareAndSet(current, failed));
+            persist();
+            journalRepair(registry, failed);
+            this.metrics.recordRejection(ChangeIconException.COMMIT_FAILED);
+            notifyFailed(target.getName(), ChangeIconException.COMMIT_FAILED);
+            return;
+        }
+        this.journal.markEnabled(target.getName());
+        this.throttle.recordCommit();
+        IconState current;
+        do {
+            current = this.state.get();
+        } while (!this.state.compareAndSet(current, current.afterCommit(target)));
+        persist();
+        this.journal.markCommitted(target.getName());
+        final long end = System.nanoTime();
+        this.metrics.recordLatency(IconMetrics.Operation.COMMIT, end - start);
+        // Without a request time, e.g. for a change adopted before this process timed it, no sample is taken.
+        if (this.pendingSinceNanos != 0) {
+            this.metrics.recordLatency(IconMetrics.Operation.REQUEST_TO_COMMIT, end - this.pendingSinceNanos);
+            this.pendingSinceNanos = 0;
+        }
+        discardComponentSnapshot();
+        for (IconChangeListener listener : this.listeners) {
+            listener.onIconChangeCommitted(target.getName());
+        }
+    }
+
+    // Without API 33 the writes are not atomic, so the target may be enabled next to the committed
+    // icon. The stored state has no room for stale aliases, so the journal records restoring the
+    // committed icon instead; if the process dies first, startup replay disables them. Without a
+    // committed icon the original entry stays, and replay completes the transition instead.
+    private void journalRepair(AliasRegistry registry, IconState failed) {
+        final IconAlias committed = failed.getCommitted();
+        if (committed == null) return;
+        final List<String> stale = new ArrayList<>();
+        for (int i = failed.nextEnabled(0); i >= 0; i = failed.nextEnabled(i + 1)) {
+            if (i != committed.getOrdinal()) stale.add(registry.get(i).getName());
+        }
+        this.journal.begin(committed.getName(), stale);
+    }
+
+    private void notifyFailed(String icon, String code) {
+        for (IconChangeListener listener : this.listeners) {
+            listener.onIconChangeFailed(icon, code);
+        }
+    }
+
+    // The pending state already holds the latest target, so deferring only needs one retry timer.
+    // If it fires while the app is in front, a change held back at an ON_PAUSE or ON_BACKGROUND
+    // commit point waits for the next one, since committing could close the running activity.
+    private void deferCommit(long delayMillis) {
+        if (!this.deferredCommitScheduled.compareAndSet(false, true)) return;
+        new Handler(Looper.getMainLooper()).postDelayed(() -> {
+            this.deferredCommitScheduled.set(false);
+            if (getEffectiveCommitPolicy() == CommitPolicy.IMMEDIATE || this.commitScheduler.isInBackground()) {
+                commitPendingChange();
+            }
+        }, delayMillis);
+    }
+}
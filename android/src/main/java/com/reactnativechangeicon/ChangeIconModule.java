@@ -2,33 +2,55 @@ package com.reactnativechangeicon;
 
 import androidx.annotation.NonNull;
 
-import android.app.Activity;
-import android.app.Application;
-import android.content.pm.PackageManager;
-import android.content.ComponentName;
-import android.os.Bundle;
-
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 @ReactModule(name = ChangeIconModule.NAME)
-public class ChangeIconModule extends ReactContextBaseJavaModule implements Application.ActivityLifecycleCallbacks {
+public class ChangeIconModule extends ChangeIconSpec {
     public static final String NAME = "ChangeIcon";
-    private final String packageName;
-    private List<String> classesToKill = new ArrayList<>();
-    private Boolean iconChanged = false;
-    private String componentClass = "";
+    private final ChangeIconManager manager;
+    private final IconEventEmitter eventEmitter;
+    private int listenerCount = 0;
 
     public ChangeIconModule(ReactApplicationContext reactContext, String packageName) {
+        this(reactContext, packageName, null);
+    }
+
+    public ChangeIconModule(ReactApplicationContext reactContext, String packageName, Executor executor) {
+        this(reactContext, packageName, executor, null);
+    }
+
+    public ChangeIconModule(ReactApplicationContext reactContext, String packageName, Executor executor, CommitPolicy commitPolicy) {
+        this(reactContext, packageName, executor, commitPolicy, null);
+    }
+
+    public ChangeIconModule(
+        ReactApplicationContext reactContext,
+        String packageName,
+        Executor executor,
+        CommitPolicy commitPolicy,
+        MetricsSink metricsSink
+    ) {
         super(reactContext);
-        this.packageName = packageName;
+        this.manager = ChangeIconManager.getInstance(reactContext, packageName, executor);
+        if (commitPolicy != null) {
+            this.manager.setCommitPolicy(commitPolicy);
+        }
+        if (metricsSink != null) {
+            this.manager.setMetricsSink(metricsSink);
+        }
+        this.eventEmitter = new IconEventEmitter(reactContext);
     }
 
     @Override
@@ -37,96 +59,235 @@ public class ChangeIconModule extends ReactContextBaseJavaModule implements Appl
         return NAME;
     }
 
+    @Override
+    public void invalidate() {
+        this.manager.removeListener(this.eventEmitter);
+        this.eventEmitter.cancel();
+    }
+
+    @Override
     @ReactMethod
-    public void getIcon(Promise promise){
-        final Activity activity = getCurrentActivity();
-        if (activity == null) {
-            promise.reject("ACTIVITY_NOT_FOUND");
-            return;
+    public synchronized void addListener(String eventName) {
+        if (this.listenerCount++ == 0) {
+            this.manager.addListener(this.eventEmitter);
+        }
+    }
+
+    @Override
+    @ReactMethod
+    public synchronized void removeListeners(double count) {
+        this.listenerCount = Math.max(0, this.listenerCount - (int) count);
+        if (this.listenerCount == 0) {
+            this.manager.removeListener(this.eventEmitter);
         }
-        if (this.componentClass.isEmpty()) {
-            this.componentClass = activity.getComponentName().getClassName();
+    }
+
+    @Override
+    @ReactMethod
+    public void getAvailableIcons(Promise promise) {
+        WritableArray icons = Arguments.createArray();
+        for (String icon : this.manager.getAvailableIcons()) {
+            icons.pushString(icon);
         }
-        String currentIcon = this.componentClass.split("MainActivity")[1];
-        promise.resolve(currentIcon.isEmpty() ? "default" : currentIcon);
-        return;
+        promise.resolve(icons);
     }
 
+    @Override
     @ReactMethod
-    public void changeIcon(String enableIcon, Promise promise) {
-        final Activity activity = getCurrentActivity();
-        if (activity == null) {
-            promise.reject("ACTIVITY_NOT_FOUND");
+    public void setCommitPolicy(String policyName, Promise promise) {
+        final CommitPolicy policy = CommitPolicy.fromJsName(policyName);
+        if (policy == null) {
+            promise.reject("INVALID_COMMIT_POLICY");
             return;
         }
-        if (enableIcon.isEmpty()) {
-            promise.reject("EMPTY_ICON_STRING");
+        this.manager.setCommitPolicy(policy);
+        promise.resolve(policyName);
+    }
+
+    @Override
+    @ReactMethod
+    public void setIconSchedule(ReadableArray windows, String fallback, Promise promise) {
+        final AliasRegistry registry = this.manager.getRegistry();
+        if (fallback != null && registry.get(fallback) == null) {
+            promise.reject(ChangeIconException.ICON_INVALID);
             return;
         }
-        if (this.componentClass.isEmpty()) {
-            this.componentClass = activity.getComponentName().getClassName();
-        }
-        final String activeClass = this.packageName + ".MainActivity" + enableIcon;
-        if (this.componentClass.equals(activeClass)) {
-            promise.reject("ICON_ALREADY_USED");
-            return;
+        final List<IconSchedule.Window> parsed = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            final ReadableMap window = windows.getMap(i);
+            if (window == null || !window.hasKey("icon") || !window.hasKey("start") || !window.hasKey("end")) {
+                promise.reject("INVALID_SCHEDULE");
+                return;
+            }
+            final String icon = window.getString("icon");
+            final long start = (long) window.getDouble("start");
+            final long end = (long) window.getDouble("end");
+            if (end <= start) {
+                promise.reject("INVALID_SCHEDULE");
+                return;
+            }
+            if (registry.get(icon) == null) {
+                promise.reject(ChangeIconException.ICON_INVALID);
+                return;
+            }
+            final int priority = window.hasKey("priority") && !window.isNull("priority") ? window.getInt("priority") : 0;
+            parsed.add(new IconSchedule.Window(icon, start, end, priority));
         }
-        try {
-            activity.getPackageManager().setComponentEnabledSetting(
-                new ComponentName(this.packageName, activeClass),
-                PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
-                PackageManager.DONT_KILL_APP
-            );
-            promise.resolve(enableIcon);
-        } catch (Exception e) {
-            promise.reject("ICON_INVALID");
+        this.manager.setSchedule(IconSchedule.compile(parsed, fallback));
+        promise.resolve(null);
+    }
+
+    @Override
+    @ReactMethod
+    public void clearIconSchedule(Promise promise) {
+        this.manager.clearSchedule();
+        promise.resolve(null);
+    }
+
+    @Override
+    @ReactMethod
+    public void getIconState(Promise promise) {
+        final ComponentStateSnapshot snapshot = this.manager.getCachedComponentSnapshot();
+        if (snapshot != null) {
+            promise.resolve(describeState(snapshot, this.manager.getState()));
             return;
         }
-        this.classesToKill.add(this.componentClass);
-        this.componentClass = activeClass;
-        activity.getApplication().registerActivityLifecycleCallbacks(this);
-        iconChanged = true;
-    }
-
-    private void completeIconChange() {
-        if (!iconChanged) return;
-        final Activity activity = getCurrentActivity();
-        if (activity == null) return;
-        classesToKill.forEach((cls) -> activity.getPackageManager().setComponentEnabledSetting(
-            new ComponentName(this.packageName, cls),
-            PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
-            PackageManager.DONT_KILL_APP
+        this.manager.execute(() -> promise.resolve(
+            describeState(this.manager.refreshComponentSnapshot(), this.manager.getState())
         ));
-        classesToKill.clear();
-        iconChanged = false;
+    }
+
+    private static WritableMap describeState(ComponentStateSnapshot snapshot, IconState state) {
+        final WritableMap icons = Arguments.createMap();
+        final List<IconAlias> aliases = snapshot.getAliases();
+        for (int i = 0; i < aliases.size(); i++) {
+            final IconAlias alias = aliases.get(i);
+            final WritableMap icon = Arguments.createMap();
+            icon.putString("enabledSetting", ComponentStateSnapshot.settingName(snapshot.getSetting(i)));
+            icon.putBoolean("enabledByDefault", alias.isEnabledByDefault());
+            icon.putString("role", roleOf(alias, state));
+            icons.putMap(alias.getName(), icon);
+        }
+        final WritableMap result = Arguments.createMap();
+        result.putMap("icons", icons);
+        result.putString("committed", ChangeIconManager.nameOf(state.getCommitted()));
+        result.putString("pending", ChangeIconManager.nameOf(state.getPending()));
+        result.putDouble("updatedAt", snapshot.getTimestamp());
+        return result;
+    }
+
+    private static String roleOf(IconAlias alias, IconState state) {
+        if (alias == state.getPending()) return "pending";
+        if (alias == state.getCommitted()) return "committed";
+        if (state.isEnabled(alias)) return "stale";
+        return "inactive";
     }
 
     @Override
-    public void onActivityPaused(Activity activity) {
-        completeIconChange();
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        final IconMetrics metrics = this.manager.getMetrics();
+        final WritableMap latencies = Arguments.createMap();
+        for (IconMetrics.Operation operation : IconMetrics.Operation.values()) {
+            final WritableMap latency = Arguments.createMap();
+            final long count = metrics.getCount(operation);
+            latency.putDouble("count", count);
+            latency.putDouble("totalMs", metrics.getTotalNanos(operation) / 1e6);
+            latency.putDouble("meanMs", count == 0 ? 0 : metrics.getTotalNanos(operation) / 1e6 / count);
+            latency.putDouble("maxMs", metrics.getMaxNanos(operation) / 1e6);
+            latency.putDouble("p50Ms", metrics.getPercentileMicros(operation, 50) / 1e3);
+            latency.putDouble("p90Ms", metrics.getPercentileMicros(operation, 90) / 1e3);
+            latency.putDouble("p99Ms", metrics.getPercentileMicros(operation, 99) / 1e3);
+            latencies.putMap(operation.getJsName(), latency);
+        }
+        final WritableMap rejections = Arguments.createMap();
+        for (String code : IconMetrics.REJECTION_CODES) {
+            rejections.putDouble(code, metrics.getRejections(code));
+        }
+        final WritableMap result = Arguments.createMap();
+        result.putMap("latencies", latencies);
+        result.putMap("rejections", rejections);
+        promise.resolve(result);
     }
 
     @Override
-    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    @ReactMethod
+    public void getIcon(Promise promise){
+        promise.resolve(this.manager.getIcon());
     }
 
     @Override
-    public void onActivityStarted(Activity activity) {
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getIconSync() {
+        return this.manager.getIcon();
     }
 
     @Override
-    public void onActivityResumed(Activity activity) {
+    @ReactMethod
+    public void changeIcon(String enableIcon, Promise promise) {
+        requestChange(null, enableIcon, null, promise);
     }
 
     @Override
-    public void onActivityStopped(Activity activity) {
+    @ReactMethod
+    public void changeIconIfCurrent(String expected, String enableIcon, Promise promise) {
+        requestChange(expected, enableIcon, null, promise);
     }
 
     @Override
-    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    @ReactMethod
+    public void applyIconTransaction(ReadableMap transaction, Promise promise) {
+        final String from = transaction.hasKey("from") && !transaction.isNull("from") ? transaction.getString("from") : null;
+        final String to = transaction.hasKey("to") && !transaction.isNull("to") ? transaction.getString("to") : null;
+        CommitPolicy policy = null;
+        if (transaction.hasKey("commitPolicy") && !transaction.isNull("commitPolicy")) {
+            policy = CommitPolicy.fromJsName(transaction.getString("commitPolicy"));
+            if (policy == null) {
+                promise.reject("INVALID_COMMIT_POLICY");
+                return;
+            }
+        }
+        requestChange(from, to, policy, promise);
+    }
+
+    // Changes wait for the process lock, which a commit in another process may hold, so they run
+    // on the manager's executor and the promise resolves from there.
+    private void requestChange(String expected, String icon, CommitPolicy policy, Promise promise) {
+        this.manager.execute(() -> {
+            final ChangeStatus status;
+            try {
+                status = this.manager.changeIconIfCurrent(expected, icon, policy);
+            } catch (ChangeIconException e) {
+                promise.reject(e.getCode());
+                return;
+            }
+            resolveChange(icon, status, promise);
+        });
+    }
+
+    private void resolveChange(String icon, ChangeStatus status, Promise promise) {
+        if (status == ChangeStatus.PENDING && this.manager.getEffectiveCommitPolicy() == CommitPolicy.IMMEDIATE) {
+            // The commit is already queued on the manager's executor; report once it has run.
+            this.manager.execute(() -> promise.resolve(describeChange(icon, this.manager.getChangeStatus(icon))));
+            return;
+        }
+        promise.resolve(describeChange(icon, status));
+    }
+
+    private static WritableMap describeChange(String icon, ChangeStatus status) {
+        final WritableMap result = Arguments.createMap();
+        result.putString("icon", icon);
+        result.putString("status", status.getJsName());
+        return result;
     }
 
     @Override
-    public void onActivityDestroyed(Activity activity) {
+    @ReactMethod
+    public void setCommitThrottle(double minIntervalMillis, double dailyBudget, Promise promise) {
+        // Configuring takes the process lock, so it runs on the manager's executor.
+        this.manager.execute(() -> {
+            this.manager.getThrottle().configure((long) minIntervalMillis, (int) dailyBudget);
+            promise.resolve(null);
+        });
     }
 }
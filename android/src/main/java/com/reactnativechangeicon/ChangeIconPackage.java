@@ -1,34 +1,69 @@
 package com.reactnativechangeicon;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
-public class ChangeIconPackage implements ReactPackage {
+public class ChangeIconPackage extends TurboReactPackage {
     private String packageName;
+    private Executor executor;
+    private CommitPolicy commitPolicy;
+    private MetricsSink metricsSink;
 
     public ChangeIconPackage(String packageName) {
+        this(packageName, null);
+    }
+
+    public ChangeIconPackage(String packageName, Executor executor) {
+        this(packageName, executor, null);
+    }
+
+    public ChangeIconPackage(String packageName, Executor executor, CommitPolicy commitPolicy) {
+        this(packageName, executor, commitPolicy, null);
+    }
+
+    public ChangeIconPackage(String packageName, Executor executor, CommitPolicy commitPolicy, MetricsSink metricsSink) {
         this.packageName = packageName;
+        this.executor = executor;
+        this.commitPolicy = commitPolicy;
+        this.metricsSink = metricsSink;
     }
 
-    @NonNull
+    @Nullable
     @Override
-    public List<NativeModule> createNativeModules(@NonNull ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new ChangeIconModule(reactContext, this.packageName));
-        return modules;
+    public NativeModule getModule(@NonNull String name, @NonNull ReactApplicationContext reactContext) {
+        if (name.equals(ChangeIconModule.NAME)) {
+            return new ChangeIconModule(reactContext, this.packageName, this.executor, this.commitPolicy, this.metricsSink);
+        }
+        return null;
     }
 
-    @NonNull
     @Override
-    public List<ViewManager> createViewManagers(@NonNull ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            final Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            moduleInfos.put(
+                ChangeIconModule.NAME,
+                new ReactModuleInfo(
+                    ChangeIconModule.NAME,
+                    ChangeIconModule.class.getName(),
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // hasConstants
+                    false, // isCxxModule
+                    BuildConfig.IS_NEW_ARCHITECTURE_ENABLED // isTurboModule
+                )
+            );
+            return moduleInfos;
+        };
     }
 }
@@ -0,0 +1,25 @@
+package com.reactnativechangeicon;
+
+/**
+ * Where a requested icon change stands.
+ */
+public enum ChangeStatus {
+    /** The icon is committed to the launcher. */
+    APPLIED("applied"),
+    /** The icon will be committed when the commit policy fires. */
+    PENDING("pending"),
+    /** The commit is held back by the {@link CommitThrottle} until its cooldown ends. */
+    DEFERRED("deferred"),
+    /** A later request replaced this one before it was committed. */
+    SUPERSEDED("superseded");
+
+    private final String jsName;
+
+    ChangeStatus(String jsName) {
+        this.jsName = jsName;
+    }
+
+    public String getJsName() {
+        return jsName;
+    }
+}
@@ -0,0 +1,28 @@
+package com.reactnativechangeicon;
+
+/**
+ * Decides when a pending icon change is committed to PackageManager.
+ */
+public enum CommitPolicy {
+    ON_PAUSE("onPause"),
+    ON_BACKGROUND("onBackground"),
+    ON_TRIM_MEMORY("onTrimMemory"),
+    IMMEDIATE("immediate");
+
+    private final String jsName;
+
+    CommitPolicy(String jsName) {
+        this.jsName = jsName;
+    }
+
+    public String getJsName() {
+        return jsName;
+    }
+
+    public static CommitPolicy fromJsName(String jsName) {
+        for (CommitPolicy policy : values()) {
+            if (policy.jsName.equals(jsName)) return policy;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package com.reactnativechangeicon;
+
+import androidx.annotation.NonNull;
+
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Single lifecycle hook that reports each moment a {@link CommitPolicy} may commit at. Registers
+ * its callbacks at most once per application; without an application nothing is reported.
+ * Backgrounding comes from {@link ProcessLifecycleOwner}, which also counts activities started
+ * before the scheduler was attached.
+ */
+final class CommitScheduler
+    implements Application.ActivityLifecycleCallbacks, ComponentCallbacks2, DefaultLifecycleObserver {
+    interface Listener {
+        void onCommitPoint(CommitPolicy point);
+
+        /** The app is back in front, a good moment to pick up what other processes changed. */
+        void onActivityResumed();
+    }
+
+    private final Application application;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean attached = false;
+
+    CommitScheduler(Application application, Listener listener) {
+        this.application = application;
+        this.listener = listener;
+    }
+
+    synchronized void attach() {
+        if (attached || application == null) return;
+        application.registerActivityLifecycleCallbacks(this);
+        application.registerComponentCallbacks(this);
+        // Lifecycle observers must be added on the main thread.
+        runOnMainThread(() -> ProcessLifecycleOwner.get().getLifecycle().addObserver(this));
+        attached = true;
+    }
+
+    /** Whether no activity of this process is started; without an application nothing is known to be. */
+    boolean isInBackground() {
+        if (application == null) return true;
+        return !ProcessLifecycleOwner.get().getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+    }
+
+    private void runOnMainThread(Runnable task) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            task.run();
+        } else {
+            mainHandler.post(task);
+        }
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+        listener.onCommitPoint(CommitPolicy.ON_PAUSE);
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        listener.onCommitPoint(CommitPolicy.ON_BACKGROUND);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            listener.onCommitPoint(CommitPolicy.ON_TRIM_MEMORY);
+        }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+        listener.onActivityResumed();
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+}
@@ -0,0 +1,171 @@
+package com.reactnativechangeicon;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Limits how often committed icon changes reach the launcher: a minimum interval between commits
+ * and a budget of commits per rolling 24 hours. Both are off by default. Settings and commit times
+ * are stored next to the icon state, so the budget holds across restarts and processes.
+ */
+public final class CommitThrottle {
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    private static final String TAG = "ChangeIcon";
+    private static final int VERSION = 1;
+    static final Clock SYSTEM_CLOCK = System::currentTimeMillis;
+    static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final Clock clock;
+    private final File file;
+    private final ProcessLock processLock;
+    private boolean loaded = false;
+    private long minIntervalMillis = 0;
+    private boolean committed = false;
+    private long lastCommit = 0;
+    // Ring buffer of the latest commit times, one slot per commit in the daily budget.
+    private long[] commitTimes = new long[0];
+    private int commitCount = 0;
+    private int oldest = 0;
+
+    CommitThrottle(Clock clock, File file, ProcessLock processLock) {
+        this.clock = clock;
+        this.file = file;
+        this.processLock = processLock;
+    }
+
+    /**
+     * Waits for the {@link ProcessLock}, which a commit in another process may hold, so call it off
+     * the main thread.
+     *
+     * @param minIntervalMillis minimum time between two commits, 0 for none
+     * @param dailyBudget maximum commits in any 24 hours, 0 for unlimited
+     */
+    public void configure(long minIntervalMillis, int dailyBudget) {
+        this.processLock.lock();
+        try {
+            synchronized (this) {
+                reload();
+                this.minIntervalMillis = Math.max(0, minIntervalMillis);
+                resize(Math.max(0, dailyBudget));
+                save();
+            }
+        } finally {
+            this.processLock.unlock();
+        }
+    }
+
+    /** Returns how long a commit has to wait, or 0 if it may happen now. */
+    public synchronized long getDelayMillis() {
+        ensureLoaded();
+        final long now = clock.currentTimeMillis();
+        long delay = 0;
+        // Wall-clock time can jump back, so a delay never exceeds the limit it comes from.
+        if (committed && minIntervalMillis > 0) {
+            delay = Math.min(lastCommit + minIntervalMillis - now, minIntervalMillis);
+        }
+        if (commitTimes.length > 0 && commitCount == commitTimes.length) {
+            delay = Math.max(delay, Math.min(commitTimes[oldest] + DAY_MILLIS - now, DAY_MILLIS));
+        }
+        return Math.max(0, delay);
+    }
+
+    /** Re-reads what other processes stored. Call it while holding the {@link ProcessLock}. */
+    synchronized void reload() {
+        loaded = false;
+        ensureLoaded();
+    }
+
+    /** Call it while holding the {@link ProcessLock}. */
+    synchronized void recordCommit() {
+        ensureLoaded();
+        final long now = clock.currentTimeMillis();
+        committed = true;
+        lastCommit = now;
+        recordInBudget(now);
+        save();
+    }
+
+    private void resize(int dailyBudget) {
+        final long[] previous = this.commitTimes;
+        final int previousCount = this.commitCount;
+        final int previousOldest = this.oldest;
+        this.commitTimes = new long[dailyBudget];
+        this.commitCount = 0;
+        this.oldest = 0;
+        for (int i = 0; i < previousCount; i++) {
+            recordInBudget(previous[(previousOldest + i) % previous.length]);
+        }
+    }
+
+    private void recordInBudget(long time) {
+        if (commitTimes.length == 0) return;
+        if (commitCount < commitTimes.length) {
+            commitTimes[(oldest + commitCount++) % commitTimes.length] = time;
+        } else {
+            commitTimes[oldest] = time;
+            oldest = (oldest + 1) % commitTimes.length;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        minIntervalMillis = 0;
+        committed = false;
+        lastCommit = 0;
+        commitTimes = new long[0];
+        commitCount = 0;
+        oldest = 0;
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) return;
+            minIntervalMillis = in.readLong();
+            committed = in.readBoolean();
+            lastCommit = in.readLong();
+            commitTimes = new long[in.readInt()];
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                recordInBudget(in.readLong());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read commit throttle", e);
+        }
+    }
+
+    private void save() {
+        try {
+            final File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Unable to create " + parent);
+            }
+            final File temp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(VERSION);
+                out.writeLong(minIntervalMillis);
+                out.writeBoolean(committed);
+                out.writeLong(lastCommit);
+                out.writeInt(commitTimes.length);
+                out.writeInt(commitCount);
+                for (int i = 0; i < commitCount; i++) {
+                    out.writeLong(commitTimes[(oldest + i) % commitTimes.length]);
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write commit throttle", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.reactnativechangeicon;
+
+import androidx.annotation.RequiresApi;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The enable/disable writes of a single icon transition. On API 33+ they are committed with one
+ * {@link PackageManager#setComponentEnabledSettings} call, so PackageManagerService persists its
+ * restrictions file and broadcasts PACKAGE_CHANGED once per transition instead of once per alias.
+ */
+final class ComponentChanges {
+    private final List<ComponentName> components = new ArrayList<>();
+    private final List<Integer> states = new ArrayList<>();
+
+    ComponentChanges enable(ComponentName component) {
+        return add(component, PackageManager.COMPONENT_ENABLED_STATE_ENABLED);
+    }
+
+    ComponentChanges disable(ComponentName component) {
+        return add(component, PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+    }
+
+    ComponentChanges add(ComponentName component, int state) {
+        components.add(component);
+        states.add(state);
+        return this;
+    }
+
+    int size() {
+        return components.size();
+    }
+
+    boolean isEmpty() {
+        return components.isEmpty();
+    }
+
+    ComponentName getComponent(int index) {
+        return components.get(index);
+    }
+
+    int getState(int index) {
+        return states.get(index);
+    }
+
+    void apply(PackageManager packageManager) {
+        if (isEmpty()) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && size() > 1) {
+            applyBatched(packageManager);
+            return;
+        }
+        for (int i = 0; i < size(); i++) {
+            packageManager.setComponentEnabledSetting(getComponent(i), getState(i), PackageManager.DONT_KILL_APP);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.TIRAMISU)
+    private void applyBatched(PackageManager packageManager) {
+        List<PackageManager.ComponentEnabledSetting> settings = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            settings.add(new PackageManager.ComponentEnabledSetting(
+                getComponent(i),
+                getState(i),
+                PackageManager.DONT_KILL_APP
+            ));
+        }
+        packageManager.setComponentEnabledSettings(settings);
+    }
+}
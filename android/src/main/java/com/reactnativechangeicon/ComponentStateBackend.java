@@ -0,0 +1,15 @@
+package com.reactnativechangeicon;
+
+import android.content.ComponentName;
+
+/**
+ * Where alias enabled states are read from and written to.
+ */
+interface ComponentStateBackend {
+    int getComponentEnabledSetting(ComponentName component);
+
+    void setComponentEnabledSettings(ComponentChanges changes);
+
+    /** Forgets any cached component state, after another process may have changed it. */
+    void invalidate();
+}
@@ -0,0 +1,59 @@
+package com.reactnativechangeicon;
+
+import android.content.pm.PackageManager;
+
+import java.util.List;
+
+/**
+ * Enabled settings of every registered alias, read in one pass on the module executor so that
+ * state queries from JS never issue binder calls themselves.
+ */
+final class ComponentStateSnapshot {
+    private final List<IconAlias> aliases;
+    private final int[] settings;
+    private final long timestamp;
+
+    private ComponentStateSnapshot(List<IconAlias> aliases, int[] settings, long timestamp) {
+        this.aliases = aliases;
+        this.settings = settings;
+        this.timestamp = timestamp;
+    }
+
+    static ComponentStateSnapshot read(ComponentStateBackend backend, AliasRegistry registry) {
+        final List<IconAlias> aliases = registry.getAliases();
+        final int[] settings = new int[aliases.size()];
+        for (int i = 0; i < settings.length; i++) {
+            settings[i] = backend.getComponentEnabledSetting(aliases.get(i).getComponentName());
+        }
+        return new ComponentStateSnapshot(aliases, settings, System.currentTimeMillis());
+    }
+
+    List<IconAlias> getAliases() {
+        return aliases;
+    }
+
+    int getSetting(int index) {
+        return settings[index];
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    static String settingName(int setting) {
+        switch (setting) {
+            case PackageManager.COMPONENT_ENABLED_STATE_DEFAULT:
+                return "default";
+            case PackageManager.COMPONENT_ENABLED_STATE_ENABLED:
+                return "enabled";
+            case PackageManager.COMPONENT_ENABLED_STATE_DISABLED:
+                return "disabled";
+            case PackageManager.COMPONENT_ENABLED_STATE_DISABLED_USER:
+                return "disabledUser";
+            case PackageManager.COMPONENT_ENABLED_STATE_DISABLED_UNTIL_USED:
+                return "disabledUntilUsed";
+            default:
+                return "unknown";
+        }
+    }
+}
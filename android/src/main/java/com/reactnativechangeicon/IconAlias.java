@@ -0,0 +1,42 @@
+package com.reactnativechangeicon;
+
+import android.content.ComponentName;
+
+/**
+ * One launcher alias. Instances are created once per {@link AliasRegistry}, so they and their
+ * {@link ComponentName} can be compared by identity and indexed by {@link #getOrdinal()}.
+ */
+public final class IconAlias {
+    private final int ordinal;
+    private final String name;
+    private final ComponentName componentName;
+    private final boolean enabledByDefault;
+
+    IconAlias(int ordinal, String name, ComponentName componentName, boolean enabledByDefault) {
+        this.ordinal = ordinal;
+        this.name = name;
+        this.componentName = componentName;
+        this.enabledByDefault = enabledByDefault;
+    }
+
+    /** Position of the alias in its registry. */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ComponentName getComponentName() {
+        return componentName;
+    }
+
+    public String getClassName() {
+        return componentName.getClassName();
+    }
+
+    public boolean isEnabledByDefault() {
+        return enabledByDefault;
+    }
+}
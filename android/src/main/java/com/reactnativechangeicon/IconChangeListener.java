@@ -0,0 +1,13 @@
+package com.reactnativechangeicon;
+
+/**
+ * Notified by {@link ChangeIconManager} as icon changes move through their lifecycle. Callbacks run
+ * on whichever thread caused the transition and must not block.
+ */
+public interface IconChangeListener {
+    void onIconChangeRequested(String icon);
+
+    void onIconChangeCommitted(String icon);
+
+    void onIconChangeFailed(String icon, String code);
+}
@@ -0,0 +1,76 @@
+package com.reactnativechangeicon;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Forwards manager events to JS through RCTDeviceEventEmitter. Events of the same name that arrive
+ * within {@link #DEBOUNCE_MILLIS} are coalesced and only the latest one is emitted.
+ */
+final class IconEventEmitter implements IconChangeListener {
+    static final String ICON_CHANGE_REQUESTED = "iconChangeRequested";
+    static final String ICON_CHANGE_COMMITTED = "iconChangeCommitted";
+    static final String ICON_CHANGE_FAILED = "iconChangeFailed";
+    static final long DEBOUNCE_MILLIS = 50;
+
+    private final ReactApplicationContext reactContext;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, WritableMap> pendingEvents = new HashMap<>();
+
+    IconEventEmitter(ReactApplicationContext reactContext) {
+        this.reactContext = reactContext;
+    }
+
+    @Override
+    public void onIconChangeRequested(String icon) {
+        emit(ICON_CHANGE_REQUESTED, icon, null);
+    }
+
+    @Override
+    public void onIconChangeCommitted(String icon) {
+        emit(ICON_CHANGE_COMMITTED, icon, null);
+    }
+
+    @Override
+    public void onIconChangeFailed(String icon, String code) {
+        emit(ICON_CHANGE_FAILED, icon, code);
+    }
+
+    private void emit(final String eventName, String icon, String code) {
+        final WritableMap payload = Arguments.createMap();
+        payload.putString("icon", icon);
+        if (code != null) {
+            payload.putString("code", code);
+        }
+        synchronized (pendingEvents) {
+            if (pendingEvents.put(eventName, payload) != null) return;
+        }
+        handler.postDelayed(() -> flush(eventName), DEBOUNCE_MILLIS);
+    }
+
+    private void flush(String eventName) {
+        final WritableMap payload;
+        synchronized (pendingEvents) {
+            payload = pendingEvents.remove(eventName);
+        }
+        if (payload == null || !reactContext.hasActiveReactInstance()) return;
+        reactContext
+            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit(eventName, payload);
+    }
+
+    void cancel() {
+        handler.removeCallbacksAndMessages(null);
+        synchronized (pendingEvents) {
+            pendingEvents.clear();
+        }
+    }
+}
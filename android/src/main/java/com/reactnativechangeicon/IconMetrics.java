@@ -0,0 +1,120 @@
+package com.reactnativechangeicon;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms and rejection counters for icon changes. Durations go into power-of-two
+ * microsecond buckets held in atomic arrays, so recording never allocates or locks.
+ */
+public final class IconMetrics {
+    public enum Operation {
+        /** One setComponentEnabledSetting(s) binder transaction. */
+        BINDER_WRITE("binderWrite"),
+        /** A whole commit: journal, PackageManager writes and state store. */
+        COMMIT("commit"),
+        /** From the request that made a change pending to its commit. */
+        REQUEST_TO_COMMIT("requestToCommit");
+
+        private final String jsName;
+
+        Operation(String jsName) {
+            this.jsName = jsName;
+        }
+
+        public String getJsName() {
+            return jsName;
+        }
+    }
+
+    static final String[] REJECTION_CODES = {
+        ChangeIconException.EMPTY_ICON_STRING,
+        ChangeIconException.ICON_INVALID,
+        ChangeIconException.ICON_ALREADY_USED,
+        ChangeIconException.ICON_MISMATCH,
+        ChangeIconException.COMMIT_FAILED,
+    };
+
+    static final int BUCKET_COUNT = 32;
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // Per operation: count, total nanos, max nanos, then the buckets.
+    private static final int COUNT = 0;
+    private static final int TOTAL = 1;
+    private static final int MAX = 2;
+    private static final int FIRST_BUCKET = 3;
+    private static final int STRIDE = FIRST_BUCKET + BUCKET_COUNT;
+
+    private final AtomicLongArray latencies = new AtomicLongArray(OPERATIONS.length * STRIDE);
+    private final AtomicLongArray rejections = new AtomicLongArray(REJECTION_CODES.length);
+    private volatile MetricsSink sink;
+
+    void setSink(MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    void recordLatency(Operation operation, long durationNanos) {
+        final int base = operation.ordinal() * STRIDE;
+        latencies.incrementAndGet(base + COUNT);
+        latencies.addAndGet(base + TOTAL, durationNanos);
+        long max = latencies.get(base + MAX);
+        while (durationNanos > max && !latencies.compareAndSet(base + MAX, max, durationNanos)) {
+            max = latencies.get(base + MAX);
+        }
+        latencies.incrementAndGet(base + FIRST_BUCKET + bucketOf(durationNanos));
+        final MetricsSink sink = this.sink;
+        if (sink != null) sink.onLatency(operation, durationNanos);
+    }
+
+    void recordRejection(String code) {
+        for (int i = 0; i < REJECTION_CODES.length; i++) {
+            if (REJECTION_CODES[i].equals(code)) {
+                rejections.incrementAndGet(i);
+                break;
+            }
+        }
+        final MetricsSink sink = this.sink;
+        if (sink != null) sink.onRejection(code);
+    }
+
+    // Bucket i holds durations below 2^i microseconds.
+    static int bucketOf(long durationNanos) {
+        final long micros = Math.max(0, durationNanos / 1000);
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public long getCount(Operation operation) {
+        return latencies.get(operation.ordinal() * STRIDE + COUNT);
+    }
+
+    public long getTotalNanos(Operation operation) {
+        return latencies.get(operation.ordinal() * STRIDE + TOTAL);
+    }
+
+    public long getMaxNanos(Operation operation) {
+        return latencies.get(operation.ordinal() * STRIDE + MAX);
+    }
+
+    public long getBucket(Operation operation, int bucket) {
+        return latencies.get(operation.ordinal() * STRIDE + FIRST_BUCKET + bucket);
+    }
+
+    /** Upper bound, in microseconds, of the bucket holding the given percentile (0-100). */
+    public long getPercentileMicros(Operation operation, double percentile) {
+        final long count = getCount(operation);
+        if (count == 0) return 0;
+        final long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += getBucket(operation, i);
+            if (seen >= rank) return 1L << i;
+        }
+        return 1L << (BUCKET_COUNT - 1);
+    }
+
+    public long getRejections(String code) {
+        for (int i = 0; i < REJECTION_CODES.length; i++) {
+            if (REJECTION_CODES[i].equals(code)) return rejections.get(i);
+        }
+        return 0;
+    }
+}
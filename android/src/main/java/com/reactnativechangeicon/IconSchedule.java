@@ -0,0 +1,143 @@
+package com.reactnativechangeicon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Icon campaigns compiled into non-overlapping segments sorted by start time, so the icon for a
+ * given moment is found with one binary search. Overlapping windows are resolved at compile time:
+ * the highest priority wins, then the latest start.
+ */
+public final class IconSchedule {
+    private static final int VERSION = 1;
+
+    public static final class Window {
+        final String icon;
+        final long start;
+        final long end;
+        final int priority;
+
+        public Window(String icon, long startMillis, long endMillis, int priority) {
+            this.icon = icon;
+            this.start = startMillis;
+            this.end = endMillis;
+            this.priority = priority;
+        }
+    }
+
+    private final long[] starts;
+    private final String[] icons;
+    private final String fallback;
+
+    private IconSchedule(long[] starts, String[] icons, String fallback) {
+        this.starts = starts;
+        this.icons = icons;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param fallback icon used outside every window, or {@code null} to leave the icon alone
+     */
+    public static IconSchedule compile(List<Window> windows, String fallback) {
+        final List<Window> sorted = new ArrayList<>(windows);
+        Collections.sort(sorted, (a, b) -> Long.compare(a.start, b.start));
+        final long[] boundaries = new long[sorted.size() * 2];
+        for (int i = 0; i < sorted.size(); i++) {
+            boundaries[2 * i] = sorted.get(i).start;
+            boundaries[2 * i + 1] = sorted.get(i).end;
+        }
+        Arrays.sort(boundaries);
+
+        final PriorityQueue<Window> active = new PriorityQueue<>(11, (a, b) -> a.priority != b.priority
+            ? Integer.compare(b.priority, a.priority)
+            : Long.compare(b.start, a.start));
+        final List<Long> segmentStarts = new ArrayList<>();
+        final List<String> segmentIcons = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < boundaries.length; i++) {
+            final long time = boundaries[i];
+            if (i > 0 && time == boundaries[i - 1]) continue;
+            while (next < sorted.size() && sorted.get(next).start <= time) {
+                active.add(sorted.get(next++));
+            }
+            // Expired windows are dropped lazily, only when they reach the head of the queue.
+            while (!active.isEmpty() && active.peek().end <= time) {
+                active.poll();
+            }
+            final String icon = active.isEmpty() ? null : active.peek().icon;
+            final int last = segmentIcons.size() - 1;
+            if (last >= 0 && (icon == null ? segmentIcons.get(last) == null : icon.equals(segmentIcons.get(last)))) {
+                continue;
+            }
+            segmentStarts.add(time);
+            segmentIcons.add(icon);
+        }
+
+        final long[] starts = new long[segmentStarts.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = segmentStarts.get(i);
+        }
+        return new IconSchedule(starts, segmentIcons.toArray(new String[0]), fallback);
+    }
+
+    /** Returns the icon scheduled at {@code timeMillis}, or {@code null} if nothing applies. */
+    public String iconAt(long timeMillis) {
+        int index = Arrays.binarySearch(starts, timeMillis);
+        if (index < 0) index = -index - 2;
+        final String icon = index < 0 ? null : icons[index];
+        return icon != null ? icon : fallback;
+    }
+
+    boolean isEmpty() {
+        return starts.length == 0 && fallback == null;
+    }
+
+    void writeTo(File file) throws IOException {
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        final File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeUTF(fallback == null ? "" : fallback);
+            out.writeInt(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                out.writeLong(starts[i]);
+                out.writeUTF(icons[i] == null ? "" : icons[i]);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /** Returns the stored schedule, or {@code null} if there is none. */
+    static IconSchedule readFrom(File file) throws IOException {
+        if (!file.exists()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) return null;
+            final String fallback = in.readUTF();
+            final int count = in.readInt();
+            final long[] starts = new long[count];
+            final String[] icons = new String[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = in.readLong();
+                final String icon = in.readUTF();
+                icons[i] = icon.isEmpty() ? null : icon;
+            }
+            return new IconSchedule(starts, icons, fallback.isEmpty() ? null : fallback);
+        }
+    }
+}
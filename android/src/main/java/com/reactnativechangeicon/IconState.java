@@ -0,0 +1,103 @@
+package com.reactnativechangeicon;
+
+import java.util.BitSet;
+
+/**
+ * Immutable snapshot of the module's icon state. Transitions return a new instance so that the
+ * snapshot can be swapped atomically with compare-and-set.
+ *
+ * <p>Enabled aliases are a {@link BitSet} keyed by {@link IconAlias#getOrdinal()}, so a commit only
+ * visits the aliases that are actually enabled. The set is never mutated after construction.
+ */
+final class IconState {
+    static final IconState UNRESOLVED = new IconState(false, null, null, new BitSet(), null);
+
+    private final boolean resolved;
+    private final IconAlias committed;
+    private final IconAlias pending;
+    private final BitSet enabled;
+    private final CommitPolicy pendingPolicy;
+
+    private IconState(
+        boolean resolved,
+        IconAlias committed,
+        IconAlias pending,
+        BitSet enabled,
+        CommitPolicy pendingPolicy
+    ) {
+        this.resolved = resolved;
+        this.committed = committed;
+        this.pending = pending;
+        this.enabled = enabled;
+        this.pendingPolicy = pending == null ? null : pendingPolicy;
+    }
+
+    static IconState resolved(IconAlias committed, IconAlias pending, BitSet enabled) {
+        return new IconState(true, committed, pending == committed ? null : pending, (BitSet) enabled.clone(), null);
+    }
+
+    boolean isResolved() {
+        return resolved;
+    }
+
+    IconAlias getCommitted() {
+        return committed;
+    }
+
+    IconAlias getPending() {
+        return pending;
+    }
+
+    /** The icon the user will see once any pending change is committed. */
+    IconAlias getCurrent() {
+        return pending != null ? pending : committed;
+    }
+
+    /** Commit policy requested for the pending change, or {@code null} to use the manager's. */
+    CommitPolicy getPendingPolicy() {
+        return pendingPolicy;
+    }
+
+    /** Whether the alias is known to be enabled; all enabled aliases except the target get disabled on commit. */
+    boolean isEnabled(IconAlias alias) {
+        return enabled.get(alias.getOrdinal());
+    }
+
+    /** Ordinal of the next enabled alias at or after {@code fromOrdinal}, or -1. */
+    int nextEnabled(int fromOrdinal) {
+        return enabled.nextSetBit(fromOrdinal);
+    }
+
+    IconState withPending(IconAlias target, CommitPolicy policy) {
+        return new IconState(resolved, committed, target == committed ? null : target, enabled, policy);
+    }
+
+    // Adopts the state another process stored. If it committed, its target is the only enabled alias.
+    IconState withStored(IconAlias committed, IconAlias pending) {
+        BitSet enabled = this.enabled;
+        if (committed != this.committed) {
+            enabled = new BitSet(committed.getOrdinal() + 1);
+            enabled.set(committed.getOrdinal());
+        }
+        return new IconState(
+            true,
+            committed,
+            pending == committed ? null : pending,
+            enabled,
+            pending == this.pending ? pendingPolicy : null
+        );
+    }
+
+    IconState afterCommit(IconAlias target) {
+        final BitSet enabled = new BitSet(target.getOrdinal() + 1);
+        enabled.set(target.getOrdinal());
+        return new IconState(true, target, pending == target ? null : pending, enabled, pendingPolicy);
+    }
+
+    // The target may or may not have been enabled before the failure, so it is treated as stale.
+    IconState afterFailedCommit(IconAlias target) {
+        final BitSet enabled = (BitSet) this.enabled.clone();
+        enabled.set(target.getOrdinal());
+        return new IconState(true, committed, pending == target ? null : pending, enabled, pendingPolicy);
+    }
+}
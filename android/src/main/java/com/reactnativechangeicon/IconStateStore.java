@@ -0,0 +1,204 @@
+package com.reactnativechangeicon;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Committed and pending icon names kept in a small memory-mapped file. Writes land in the page
+ * cache, so they survive process death without an fsync. A sequence counter and a checksum let
+ * readers detect and retry torn reads: plain buffer accesses are not ordered, so on weakly ordered
+ * CPUs an unchanged sequence alone does not prove the names were read whole. The mapping is
+ * shared by every process of the app; writers must hold the {@link ProcessLock}, readers take no
+ * lock.
+ */
+final class IconStateStore {
+    private static final String TAG = "ChangeIcon";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SIZE = 512;
+    private static final int MAGIC = 0x43494332;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SEQUENCE_OFFSET = 4;
+    private static final int COMMITTED_OFFSET = 8;
+    private static final int PENDING_OFFSET = 256;
+    private static final int CHECKSUM_OFFSET = 504;
+    private static final int MAX_NAME_BYTES = 240;
+    // A save takes microseconds; a sequence that stays odd longer was left by a writer that died.
+    private static final int MAX_READ_ATTEMPTS = 1000;
+
+    static final class Snapshot {
+        final int sequence;
+        final String committed;
+        final String pending;
+
+        Snapshot(int sequence, String committed, String pending) {
+            this.sequence = sequence;
+            this.committed = committed;
+            this.pending = pending;
+        }
+    }
+
+    private final File file;
+    private volatile MappedByteBuffer buffer;
+
+    IconStateStore(File file) {
+        this.file = file;
+    }
+
+    // Only the first call takes the monitor; after that readers stay lock-free.
+    private MappedByteBuffer map() throws IOException {
+        final MappedByteBuffer mapped = this.buffer;
+        if (mapped != null) return mapped;
+        synchronized (this) {
+            if (this.buffer == null) {
+                final File parent = this.file.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new IOException("Unable to create " + parent);
+                }
+                try (RandomAccessFile raf = new RandomAccessFile(this.file, "rw")) {
+                    this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+                }
+            }
+            return this.buffer;
+        }
+    }
+
+    /**
+     * Returns the stored state, or {@code null} if nothing has been stored yet or the record stays
+     * torn; see {@link #discardIfTorn()}.
+     */
+    Snapshot load() {
+        try {
+            final MappedByteBuffer buffer = map();
+            for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+                final int sequence = buffer.getInt(SEQUENCE_OFFSET);
+                if ((sequence & 1) != 0) {
+                    Thread.yield();
+                    continue;
+                }
+                if (buffer.getInt(MAGIC_OFFSET) != MAGIC) return null;
+                final byte[] committed = readName(buffer, COMMITTED_OFFSET);
+                final byte[] pending = readName(buffer, PENDING_OFFSET);
+                if (buffer.getInt(CHECKSUM_OFFSET) == checksum(sequence, committed, pending)
+                    && buffer.getInt(SEQUENCE_OFFSET) == sequence) {
+                    return new Snapshot(sequence, decode(committed), decode(pending));
+                }
+            }
+            Log.w(TAG, "Icon state is being written for too long, ignoring it");
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read icon state", e);
+            return null;
+        }
+    }
+
+    /** Current sequence number, which changes on every save from any process; -1 if unreadable. */
+    int getSequence() {
+        try {
+            return map().getInt(SEQUENCE_OFFSET);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /** Whether a save is in progress, or was interrupted by the death of its process. */
+    boolean isTorn() {
+        return (getSequence() & 1) != 0;
+    }
+
+    /**
+     * Discards a record whose writer died halfway through a save. Only call it while holding the
+     * {@link ProcessLock}: no live writer exists then, so an odd sequence can only be left over.
+     */
+    synchronized boolean discardIfTorn() {
+        try {
+            final MappedByteBuffer buffer = map();
+            final int sequence = buffer.getInt(SEQUENCE_OFFSET);
+            if ((sequence & 1) == 0) return false;
+            Log.w(TAG, "Discarding icon state left half-written");
+            buffer.putInt(MAGIC_OFFSET, 0);
+            buffer.putInt(SEQUENCE_OFFSET, sequence + 1);
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write icon state", e);
+            return false;
+        }
+    }
+
+    /** Stores the state and returns the new sequence number, or -1 if it could not be written. */
+    synchronized int save(String committed, String pending) {
+        try {
+            final MappedByteBuffer buffer = map();
+            final int sequence = buffer.getInt(SEQUENCE_OFFSET);
+            final int next = (sequence | 1) + 1;
+            buffer.putInt(SEQUENCE_OFFSET, sequence | 1);
+            final byte[] committedBytes = writeName(buffer, COMMITTED_OFFSET, committed);
+            final byte[] pendingBytes = writeName(buffer, PENDING_OFFSET, pending);
+            buffer.putInt(CHECKSUM_OFFSET, checksum(next, committedBytes, pendingBytes));
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(SEQUENCE_OFFSET, next);
+            return next;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write icon state", e);
+            return -1;
+        }
+    }
+
+    // Returns null for a missing or out-of-range name; a torn length then fails the checksum.
+    private static byte[] readName(MappedByteBuffer buffer, int offset) {
+        final int length = buffer.getShort(offset);
+        if (length <= 0 || length > MAX_NAME_BYTES) return null;
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return bytes;
+    }
+
+    private static String decode(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, UTF_8);
+    }
+
+    // Returns the bytes actually stored, which are empty for a name that does not fit.
+    private static byte[] writeName(MappedByteBuffer buffer, int offset, String name) {
+        byte[] bytes = name == null ? new byte[0] : name.getBytes(UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            bytes = new byte[0];
+        }
+        buffer.putShort(offset, (short) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + 2 + i, bytes[i]);
+        }
+        return bytes;
+    }
+
+    private static int checksum(int sequence, byte[] committed, byte[] pending) {
+        final CRC32 crc = new CRC32();
+        updateInt(crc, sequence);
+        updateName(crc, committed);
+        updateName(crc, pending);
+        return (int) crc.getValue();
+    }
+
+    private static void updateName(CRC32 crc, byte[] name) {
+        if (name == null) {
+            updateInt(crc, 0);
+            return;
+        }
+        updateInt(crc, name.length);
+        crc.update(name, 0, name.length);
+    }
+
+    private static void updateInt(CRC32 crc, int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+}
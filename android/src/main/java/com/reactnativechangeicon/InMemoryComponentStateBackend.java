@@ -0,0 +1,53 @@
+package com.reactnativechangeicon;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PackageManager stand-in for tests and benchmarks. Counts calls so batching and write elision
+ * can be measured.
+ */
+final class InMemoryComponentStateBackend implements ComponentStateBackend {
+    private final Map<ComponentName, Integer> states = new HashMap<>();
+    private int commitCount = 0;
+    private int writeCount = 0;
+
+    @Override
+    public synchronized int getComponentEnabledSetting(ComponentName component) {
+        final Integer state = states.get(component);
+        return state == null ? PackageManager.COMPONENT_ENABLED_STATE_DEFAULT : state;
+    }
+
+    @Override
+    public synchronized void setComponentEnabledSettings(ComponentChanges changes) {
+        if (changes.isEmpty()) return;
+        commitCount++;
+        for (int i = 0; i < changes.size(); i++) {
+            states.put(changes.getComponent(i), changes.getState(i));
+            writeCount++;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+    }
+
+    synchronized boolean isEnabled(IconAlias alias) {
+        final int state = getComponentEnabledSetting(alias.getComponentName());
+        return state == PackageManager.COMPONENT_ENABLED_STATE_ENABLED
+            || (state == PackageManager.COMPONENT_ENABLED_STATE_DEFAULT && alias.isEnabledByDefault());
+    }
+
+    /** Number of setComponentEnabledSettings calls, i.e. launcher refreshes. */
+    synchronized int getCommitCount() {
+        return commitCount;
+    }
+
+    /** Number of individual component writes across all commits. */
+    synchronized int getWriteCount() {
+        return writeCount;
+    }
+}
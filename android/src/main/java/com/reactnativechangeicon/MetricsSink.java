@@ -0,0 +1,12 @@
+package com.reactnativechangeicon;
+
+/**
+ * Receives icon change measurements as they are recorded, e.g. to forward them to an app's own
+ * telemetry. Called on the thread doing the work; implementations must not block or allocate
+ * heavily.
+ */
+public interface MetricsSink {
+    void onLatency(IconMetrics.Operation operation, long durationNanos);
+
+    void onRejection(String code);
+}
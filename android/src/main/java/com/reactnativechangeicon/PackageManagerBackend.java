@@ -0,0 +1,41 @@
+package com.reactnativechangeicon;
+
+import android.content.ComponentName;
+import android.content.pm.PackageManager;
+import android.os.Trace;
+
+final class PackageManagerBackend implements ComponentStateBackend {
+    private final PackageManager packageManager;
+    private final IconMetrics metrics;
+
+    PackageManagerBackend(PackageManager packageManager, IconMetrics metrics) {
+        this.packageManager = packageManager;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int getComponentEnabledSetting(ComponentName component) {
+        Trace.beginSection("ChangeIcon.getComponentEnabledSetting");
+        try {
+            return packageManager.getComponentEnabledSetting(component);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    @Override
+    public void setComponentEnabledSettings(ComponentChanges changes) {
+        Trace.beginSection("ChangeIcon.setComponentEnabledSettings");
+        final long start = System.nanoTime();
+        try {
+            changes.apply(packageManager);
+        } finally {
+            metrics.recordLatency(IconMetrics.Operation.BINDER_WRITE, System.nanoTime() - start);
+            Trace.endSection();
+        }
+    }
+
+    @Override
+    public void invalidate() {
+    }
+}
@@ -0,0 +1,82 @@
+package com.reactnativechangeicon;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock shared by every process of the app, so that only one of them writes the state files or
+ * commits an icon change at a time. Reentrant; the file lock is held while the outermost holder
+ * is inside. File locks belong to the whole process, so everything in it that uses the same file
+ * gets the same instance from {@link #forFile(File)}.
+ *
+ * <p>If the file cannot be opened or locked, the holder carries on with only the threads of this
+ * process serialized. That is logged as an error, since other processes are not excluded then.
+ */
+final class ProcessLock {
+    private static final String TAG = "ChangeIcon";
+    private static final Map<String, ProcessLock> LOCKS = new HashMap<>();
+
+    private final File file;
+    private final ReentrantLock threadLock = new ReentrantLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    private ProcessLock(File file) {
+        this.file = file;
+    }
+
+    static ProcessLock forFile(File file) {
+        final String path = file.getAbsolutePath();
+        synchronized (LOCKS) {
+            ProcessLock lock = LOCKS.get(path);
+            if (lock == null) {
+                lock = new ProcessLock(file);
+                LOCKS.put(path, lock);
+            }
+            return lock;
+        }
+    }
+
+    void lock() {
+        this.threadLock.lock();
+        if (this.threadLock.getHoldCount() > 1) return;
+        try {
+            if (this.channel == null || !this.channel.isOpen()) {
+                final File parent = this.file.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new IOException("Unable to create " + parent);
+                }
+                this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+            }
+            this.fileLock = this.channel.lock();
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to lock " + this.file + ", other processes are not excluded", e);
+        } catch (OverlappingFileLockException e) {
+            // Only another instance for the same file could hold it, which forFile rules out.
+            this.threadLock.unlock();
+            throw e;
+        }
+    }
+
+    void unlock() {
+        try {
+            if (this.threadLock.getHoldCount() == 1 && this.fileLock != null) {
+                this.fileLock.release();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to unlock " + this.file, e);
+        } finally {
+            if (this.threadLock.getHoldCount() == 1) this.fileLock = null;
+            this.threadLock.unlock();
+        }
+    }
+}
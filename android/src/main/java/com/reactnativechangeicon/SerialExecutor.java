@@ -0,0 +1,40 @@
+package com.reactnativechangeicon;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks one at a time, in submission order, on top of any delegate executor so that
+ * component-state writes never interleave even when the delegate is a shared thread pool.
+ */
+final class SerialExecutor implements Executor {
+    private final Executor delegate;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private Runnable active;
+
+    SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void execute(@NonNull final Runnable task) {
+        tasks.offer(() -> {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        if ((active = tasks.poll()) != null) {
+            delegate.execute(active);
+        }
+    }
+}
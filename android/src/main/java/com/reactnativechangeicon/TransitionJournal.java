@@ -0,0 +1,112 @@
+package com.reactnativechangeicon;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Write-ahead log for the transition being committed. A transition is recorded as
+ * {@code INTENT} before any PackageManager write, {@code ENABLED} once the writes have landed and
+ * {@code COMMITTED} once the state store agrees; the file is then truncated, so it never holds
+ * more than one transition and replaying it at startup reads a handful of bytes.
+ */
+final class TransitionJournal {
+    private static final String TAG = "ChangeIcon";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String INTENT = "I";
+    private static final String ENABLED = "E";
+    private static final String COMMITTED = "C";
+
+    static final class Entry {
+        final String target;
+        final List<String> disable;
+        final boolean enabled;
+
+        Entry(String target, List<String> disable, boolean enabled) {
+            this.target = target;
+            this.disable = disable;
+            this.enabled = enabled;
+        }
+    }
+
+    private final File file;
+
+    TransitionJournal(File file) {
+        this.file = file;
+    }
+
+    void begin(String target, List<String> disable) {
+        final StringBuilder line = new StringBuilder(INTENT).append('\t').append(target).append('\t');
+        for (int i = 0; i < disable.size(); i++) {
+            if (i > 0) line.append(',');
+            line.append(disable.get(i));
+        }
+        append(line.toString());
+    }
+
+    void markEnabled(String target) {
+        append(ENABLED + '\t' + target);
+    }
+
+    void markCommitted(String target) {
+        append(COMMITTED + '\t' + target);
+        truncate();
+    }
+
+    /** Returns the last transition that was started but never committed, if any. */
+    Entry readIncomplete() {
+        Entry entry = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.file), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t", -1);
+                if (fields.length < 2) continue;
+                if (INTENT.equals(fields[0])) {
+                    final List<String> disable = fields.length > 2 && !fields[2].isEmpty()
+                        ? Collections.unmodifiableList(Arrays.asList(fields[2].split(",")))
+                        : Collections.<String>emptyList();
+                    entry = new Entry(fields[1], disable, false);
+                } else if (entry != null && entry.target.equals(fields[1])) {
+                    if (ENABLED.equals(fields[0])) {
+                        entry = new Entry(entry.target, entry.disable, true);
+                    } else if (COMMITTED.equals(fields[0])) {
+                        entry = null;
+                    }
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read icon transition journal", e);
+        }
+        return entry;
+    }
+
+    private void append(String line) {
+        final File parent = this.file.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        try (FileOutputStream out = new FileOutputStream(this.file, true)) {
+            out.write((line + '\n').getBytes(UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write icon transition journal", e);
+        }
+    }
+
+    private void truncate() {
+        try {
+            new FileOutputStream(this.file, false).close();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to truncate icon transition journal", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.reactnativechangeicon;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+abstract class ChangeIconSpec extends NativeChangeIconSpec {
+    ChangeIconSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,41 @@
+package com.reactnativechangeicon;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+abstract class ChangeIconSpec extends ReactContextBaseJavaModule {
+    ChangeIconSpec(ReactApplicationContext context) {
+        super(context);
+    }
+
+    public abstract void getIcon(Promise promise);
+
+    public abstract String getIconSync();
+
+    public abstract void changeIcon(String iconName, Promise promise);
+
+    public abstract void changeIconIfCurrent(String expected, String iconName, Promise promise);
+
+    public abstract void applyIconTransaction(ReadableMap transaction, Promise promise);
+
+    public abstract void getAvailableIcons(Promise promise);
+
+    public abstract void setCommitPolicy(String policy, Promise promise);
+
+    public abstract void getIconState(Promise promise);
+
+    public abstract void setIconSchedule(ReadableArray windows, String fallback, Promise promise);
+
+    public abstract void clearIconSchedule(Promise promise);
+
+    public abstract void setCommitThrottle(double minIntervalMillis, double dailyBudget, Promise promise);
+
+    public abstract void getMetrics(Promise promise);
+
+    public abstract void addListener(String eventName);
+
+    public abstract void removeListeners(double count);
+}
@@ -0,0 +1,84 @@
+package com.reactnativechangeicon;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+
+/**
+ * Installs {@code count} launcher aliases into Robolectric's PackageManager and builds managers
+ * over them. The first alias is enabled by default.
+ */
+final class AliasFixture {
+    final Application application = RuntimeEnvironment.getApplication();
+    final String packageName = application.getPackageName();
+    final String[] names;
+
+    AliasFixture(int count) {
+        names = new String[count];
+        final ActivityInfo[] activities = new ActivityInfo[count + 1];
+        activities[0] = activity(packageName + ".MainActivity", null, true);
+        for (int i = 0; i < count; i++) {
+            names[i] = nameOf(i);
+            activities[i + 1] = activity(packageName + ".MainActivity" + names[i], packageName + ".MainActivity", i == 0);
+        }
+        final PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        info.applicationInfo = application.getApplicationInfo();
+        info.activities = activities;
+        shadowOf(application.getPackageManager()).installPackage(info);
+    }
+
+    /** Icon names must be lowercase letters, so ordinals are spelled in base 26: a, b, ..., z, ba. */
+    static String nameOf(int ordinal) {
+        final StringBuilder name = new StringBuilder();
+        do {
+            name.insert(0, (char) ('a' + ordinal % 26));
+            ordinal /= 26;
+        } while (ordinal > 0);
+        return name.toString();
+    }
+
+    private ActivityInfo activity(String name, String targetActivity, boolean enabled) {
+        final ActivityInfo activity = new ActivityInfo();
+        activity.name = name;
+        activity.packageName = packageName;
+        activity.targetActivity = targetActivity;
+        activity.enabled = enabled;
+        activity.applicationInfo = application.getApplicationInfo();
+        return activity;
+    }
+
+    static File newStateDir() {
+        try {
+            return Files.createTempDirectory("change-icon").toFile();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A plain context keeps the manager's lifecycle callbacks off the shared Application.
+    ChangeIconManager newManager(ComponentStateBackend backend, File stateDir, Executor executor) {
+        return newManager(new ContextWrapper(application), backend, stateDir, executor, CommitThrottle.SYSTEM_CLOCK);
+    }
+
+    ChangeIconManager newManager(
+        Context context,
+        ComponentStateBackend backend,
+        File stateDir,
+        Executor executor,
+        CommitThrottle.Clock clock
+    ) {
+        return new ChangeIconManager(context, packageName, backend, stateDir, executor, clock, new IconMetrics());
+    }
+}
@@ -0,0 +1,274 @@
+package com.reactnativechangeicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives randomized interleavings of icon changes, reads, activity pauses, queued commits, commit
+ * failures and process deaths, and checks after every step that exactly one alias is enabled.
+ * Runs are reproducible from their seed. For a soak run pass
+ * {@code -DchangeIcon.stress.steps=1000000} and optionally {@code -DchangeIcon.stress.seed=<seed>}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ChangeIconStressTest {
+    private static final int ALIASES = 8;
+    private static final int STEPS = Integer.getInteger("changeIcon.stress.steps", 5_000);
+    private static final long[] SEEDS = Long.getLong("changeIcon.stress.seed") != null
+        ? new long[] {Long.getLong("changeIcon.stress.seed")}
+        : new long[] {1L, 42L, 20221017L};
+
+    /** Thrown after a write lands to simulate the process dying before the commit finishes. */
+    private static final class ProcessDeath extends Error {
+    }
+
+    /** Runs queued tasks only when the harness says so, which makes interleavings seed-controlled. */
+    private static final class ManualExecutor implements java.util.concurrent.Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        boolean runNext() {
+            final Runnable task = tasks.poll();
+            if (task == null) return false;
+            task.run();
+            return true;
+        }
+    }
+
+    /** Fails some writes before they land and kills the process after others have landed. */
+    private static final class FaultyBackend implements ComponentStateBackend {
+        final InMemoryComponentStateBackend delegate;
+        final Random random;
+        final double failureRate;
+        final double deathRate;
+
+        FaultyBackend(InMemoryComponentStateBackend delegate, Random random, double failureRate, double deathRate) {
+            this.delegate = delegate;
+            this.random = random;
+            this.failureRate = failureRate;
+            this.deathRate = deathRate;
+        }
+
+        @Override
+        public int getComponentEnabledSetting(android.content.ComponentName component) {
+            return delegate.getComponentEnabledSetting(component);
+        }
+
+        @Override
+        public void setComponentEnabledSettings(ComponentChanges changes) {
+            if (random.nextDouble() < failureRate) {
+                throw new SecurityException("Injected write failure");
+            }
+            delegate.setComponentEnabledSettings(changes);
+            if (random.nextDouble() < deathRate) {
+                throw new ProcessDeath();
+            }
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+
+    /** One simulated app process; a new one is created after every process death. */
+    private final class Process {
+        final ManualExecutor executor = new ManualExecutor();
+        final ChangeIconManager manager;
+
+        Process(AliasFixture fixture, ComponentStateBackend backend, File stateDir, CommitPolicy policy) {
+            manager = fixture.newManager(new CachingComponentStateBackend(backend), stateDir, executor);
+            manager.setCommitPolicy(policy);
+        }
+    }
+
+    @Test
+    public void randomizedInterleavings() {
+        for (long seed : SEEDS) {
+            run(seed);
+        }
+    }
+
+    private void run(long seed) {
+        final Random random = new Random(seed);
+        final AliasFixture fixture = new AliasFixture(ALIASES);
+        final InMemoryComponentStateBackend packageManager = new InMemoryComponentStateBackend();
+        final FaultyBackend backend = new FaultyBackend(packageManager, random, 0.05, 0.05);
+        final File stateDir = AliasFixture.newStateDir();
+        final Activity activity = Robolectric.buildActivity(Activity.class).get();
+        CommitPolicy policy = CommitPolicy.ON_PAUSE;
+        Process process = new Process(fixture, backend, stateDir, policy);
+        int deaths = 0;
+        int changes = 0;
+
+        final long start = System.nanoTime();
+        for (int step = 0; step < STEPS; step++) {
+            final String context = String.format(Locale.ROOT, "seed %d, step %d", seed, step);
+            try {
+                final int op = random.nextInt(100);
+                if (op < 35) {
+                    try {
+                        process.manager.changeIcon(fixture.names[random.nextInt(ALIASES)]);
+                        changes++;
+                    } catch (ChangeIconException e) {
+                        assertEquals(context, ChangeIconException.ICON_ALREADY_USED, e.getCode());
+                    }
+                } else if (op < 50) {
+                    process.manager.getIcon();
+                } else if (op < 65) {
+                    process.manager.getCommitScheduler().onActivityPaused(activity);
+                } else if (op < 85) {
+                    process.executor.runNext();
+                } else if (op < 92) {
+                    while (process.executor.runNext()) {
+                    }
+                    assertConsistent(context, process.manager, packageManager);
+                } else if (op < 96) {
+                    policy = policy == CommitPolicy.ON_PAUSE ? CommitPolicy.IMMEDIATE : CommitPolicy.ON_PAUSE;
+                    process.manager.setCommitPolicy(policy);
+                } else {
+                    throw new ProcessDeath();
+                }
+            } catch (ProcessDeath death) {
+                // Queued tasks die with the process; the component settings and state files survive.
+                deaths++;
+                process = new Process(fixture, backend, stateDir, policy);
+            }
+            assertEquals(context, 1, enabledCount(process.manager, packageManager));
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.ROOT,
+            "stress seed=%d steps=%d changes=%d deaths=%d %,.0f steps/s, %d commits, %d writes",
+            seed, STEPS, changes, deaths, STEPS * 1e9 / elapsed,
+            packageManager.getCommitCount(), packageManager.getWriteCount()));
+    }
+
+    // Writers, readers and commit points race on one manager. Readers must never see a torn
+    // snapshot, and once everything settles a final change must still be applied exactly once.
+    @Test
+    public void concurrentCallers() throws Exception {
+        final AliasFixture fixture = new AliasFixture(ALIASES);
+        final InMemoryComponentStateBackend packageManager = new InMemoryComponentStateBackend();
+        final ExecutorService commits = Executors.newSingleThreadExecutor();
+        final ChangeIconManager manager = fixture.newManager(
+            new CachingComponentStateBackend(packageManager), AliasFixture.newStateDir(), commits);
+        final Activity activity = Robolectric.buildActivity(Activity.class).get();
+        final int writers = 4;
+        final int readers = 2;
+        final int callsPerThread = STEPS;
+        final ExecutorService callers = Executors.newFixedThreadPool(writers + readers);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (int t = 0; t < writers; t++) {
+            final Random random = new Random(SEEDS[0] + t);
+            callers.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < callsPerThread; i++) {
+                        final int op = random.nextInt(10);
+                        if (op < 6) {
+                            try {
+                                manager.changeIcon(fixture.names[random.nextInt(ALIASES)]);
+                            } catch (ChangeIconException e) {
+                                assertEquals(ChangeIconException.ICON_ALREADY_USED, e.getCode());
+                            }
+                        } else if (op < 8) {
+                            manager.commitPendingChange();
+                        } else {
+                            manager.getCommitScheduler().onActivityPaused(activity);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+        for (int t = 0; t < readers; t++) {
+            callers.execute(() -> {
+                try {
+                    start.await();
+                    while (!done.get()) {
+                        final IconState state = manager.getState();
+                        assertTrue(state.getPending() == null || state.getPending() != state.getCommitted());
+                        assertTrue(state.getCommitted() == null || state.isEnabled(state.getCommitted()));
+                        manager.getIcon();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        assertTrue(writersDone.await(5, TimeUnit.MINUTES));
+        done.set(true);
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(1, TimeUnit.MINUTES));
+        assertNull(failure.get());
+
+        final String last = fixture.names[0].equals(manager.getIcon()) ? fixture.names[1] : fixture.names[0];
+        manager.changeIcon(last);
+        manager.commitPendingChange();
+        commits.shutdown();
+        assertTrue(commits.awaitTermination(1, TimeUnit.MINUTES));
+        final long elapsed = System.nanoTime() - begin;
+
+        assertConsistent("concurrent callers", manager, packageManager);
+        final IconState state = manager.getState();
+        assertEquals(last, state.getCommitted().getName());
+        for (IconAlias alias : manager.getRegistry().getAliases()) {
+            assertEquals(alias.getName(), alias == state.getCommitted(), state.isEnabled(alias));
+        }
+        System.out.println(String.format(Locale.ROOT,
+            "concurrent writers=%d readers=%d calls=%d %,.0f calls/s, %d commits, %d writes",
+            writers, readers, writers * callsPerThread, writers * callsPerThread * 1e9 / elapsed,
+            packageManager.getCommitCount(), packageManager.getWriteCount()));
+    }
+
+    private static int enabledCount(ChangeIconManager manager, InMemoryComponentStateBackend packageManager) {
+        int enabled = 0;
+        for (IconAlias alias : manager.getRegistry().getAliases()) {
+            if (packageManager.isEnabled(alias)) enabled++;
+        }
+        return enabled;
+    }
+
+    // With nothing pending, the committed icon must be the one the launcher shows.
+    private static void assertConsistent(String context, ChangeIconManager manager, InMemoryComponentStateBackend packageManager) {
+        final IconState state = manager.getState();
+        if (state.getPending() != null) return;
+        assertEquals(context, 1, enabledCount(manager, packageManager));
+        assertTrue(context, packageManager.isEnabled(state.getCommitted()));
+        assertEquals(context, state.getCommitted().getName(), manager.getIcon());
+    }
+}
@@ -0,0 +1,87 @@
+package com.reactnativechangeicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+/** Commits that fail halfway, as per-component writes before API 33 can, must not leave two icons. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class CommitRecoveryTest {
+    /** Applies only the first change of a batch, then fails like a rejected binder call. */
+    private static final class PartialBackend implements ComponentStateBackend {
+        final InMemoryComponentStateBackend delegate;
+        boolean failing = true;
+
+        PartialBackend(InMemoryComponentStateBackend delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int getComponentEnabledSetting(android.content.ComponentName component) {
+            return delegate.getComponentEnabledSetting(component);
+        }
+
+        @Override
+        public void setComponentEnabledSettings(ComponentChanges changes) {
+            if (!failing) {
+                delegate.setComponentEnabledSettings(changes);
+                return;
+            }
+            delegate.setComponentEnabledSettings(
+                new ComponentChanges().add(changes.getComponent(0), changes.getState(0)));
+            throw new SecurityException("Injected failure after the first write");
+        }
+
+        @Override
+        public void invalidate() {
+        }
+    }
+
+    private final AliasFixture fixture = new AliasFixture(3);
+    private final InMemoryComponentStateBackend packageManager = new InMemoryComponentStateBackend();
+    private final File stateDir = AliasFixture.newStateDir();
+
+    private ChangeIconManager newProcess(ComponentStateBackend backend) {
+        final ChangeIconManager manager = fixture.newManager(backend, stateDir, Runnable::run);
+        manager.setCommitPolicy(CommitPolicy.IMMEDIATE);
+        return manager;
+    }
+
+    private boolean isEnabled(ChangeIconManager manager, String icon) {
+        return packageManager.isEnabled(manager.getRegistry().get(icon));
+    }
+
+    @Test
+    public void restartDisablesTheHalfEnabledTarget() throws Exception {
+        final ChangeIconManager dying = newProcess(new PartialBackend(packageManager));
+        dying.changeIcon(fixture.names[1]);
+        assertTrue(isEnabled(dying, fixture.names[0]));
+        assertTrue(isEnabled(dying, fixture.names[1]));
+
+        final ChangeIconManager restarted = newProcess(packageManager);
+        assertEquals(fixture.names[0], restarted.getIcon());
+        assertTrue(isEnabled(restarted, fixture.names[0]));
+        assertFalse(isEnabled(restarted, fixture.names[1]));
+    }
+
+    @Test
+    public void nextCommitDisablesTheHalfEnabledTarget() throws Exception {
+        final PartialBackend backend = new PartialBackend(packageManager);
+        final ChangeIconManager manager = newProcess(backend);
+        manager.changeIcon(fixture.names[1]);
+        backend.failing = false;
+        manager.changeIcon(fixture.names[2]);
+
+        assertFalse(isEnabled(manager, fixture.names[0]));
+        assertFalse(isEnabled(manager, fixture.names[1]));
+        assertTrue(isEnabled(manager, fixture.names[2]));
+    }
+}
@@ -0,0 +1,137 @@
+package com.reactnativechangeicon;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContextWrapper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class CommitThrottleTest {
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static final class FakeClock implements CommitThrottle.Clock {
+        long now = 1_700_000_000_000L;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    private final FakeClock clock = new FakeClock();
+    private final File stateDir = AliasFixture.newStateDir();
+
+    private CommitThrottle newThrottle() {
+        return new CommitThrottle(clock, new File(stateDir, "throttle"), ProcessLock.forFile(new File(stateDir, "lock")));
+    }
+
+    @Test
+    public void offByDefault() {
+        final CommitThrottle throttle = newThrottle();
+        throttle.recordCommit();
+        throttle.recordCommit();
+        assertEquals(0, throttle.getDelayMillis());
+    }
+
+    @Test
+    public void minimumInterval() {
+        final CommitThrottle throttle = newThrottle();
+        throttle.configure(10 * MINUTE, 0);
+        assertEquals(0, throttle.getDelayMillis());
+        throttle.recordCommit();
+        assertEquals(10 * MINUTE, throttle.getDelayMillis());
+        clock.now += 4 * MINUTE;
+        assertEquals(6 * MINUTE, throttle.getDelayMillis());
+        clock.now += 6 * MINUTE;
+        assertEquals(0, throttle.getDelayMillis());
+    }
+
+    @Test
+    public void dailyBudget() {
+        final CommitThrottle throttle = newThrottle();
+        throttle.configure(0, 3);
+        throttle.recordCommit();
+        clock.now += HOUR;
+        throttle.recordCommit();
+        clock.now += HOUR;
+        assertEquals(0, throttle.getDelayMillis());
+        throttle.recordCommit();
+        // The oldest of the three commits leaves the rolling window 22 hours from now.
+        assertEquals(22 * HOUR, throttle.getDelayMillis());
+        clock.now += 22 * HOUR;
+        assertEquals(0, throttle.getDelayMillis());
+    }
+
+    @Test
+    public void shrinkingTheBudgetKeepsTheLatestCommits() {
+        final CommitThrottle throttle = newThrottle();
+        throttle.configure(0, 5);
+        throttle.recordCommit();
+        clock.now += HOUR;
+        throttle.recordCommit();
+        throttle.configure(0, 1);
+        assertEquals(24 * HOUR, throttle.getDelayMillis());
+    }
+
+    @Test
+    public void wallClockGoingBackNeverDefersPastTheLimit() {
+        final CommitThrottle throttle = newThrottle();
+        throttle.configure(10 * MINUTE, 1);
+        throttle.recordCommit();
+        clock.now -= 48 * HOUR;
+        assertEquals(24 * HOUR, throttle.getDelayMillis());
+    }
+
+    @Test
+    public void settingsAndCommitsSurviveRestarts() {
+        final CommitThrottle first = newThrottle();
+        first.configure(10 * MINUTE, 2);
+        first.recordCommit();
+        clock.now += MINUTE;
+
+        final CommitThrottle restarted = newThrottle();
+        assertEquals(9 * MINUTE, restarted.getDelayMillis());
+        clock.now += 9 * MINUTE;
+        restarted.recordCommit();
+        assertEquals(23 * HOUR + 50 * MINUTE, restarted.getDelayMillis());
+    }
+
+    @Test
+    public void commitsFromAnotherProcessCountAfterReload() {
+        final CommitThrottle process = newThrottle();
+        final CommitThrottle other = newThrottle();
+        process.configure(0, 1);
+        other.reload();
+        other.recordCommit();
+        assertEquals(0, process.getDelayMillis());
+        process.reload();
+        assertEquals(24 * HOUR, process.getDelayMillis());
+    }
+
+    @Test
+    public void deferredCommitWaitsForTheCooldown() throws Exception {
+        final AliasFixture fixture = new AliasFixture(3);
+        final ChangeIconManager manager = fixture.newManager(
+            new ContextWrapper(fixture.application), new InMemoryComponentStateBackend(), stateDir, Runnable::run, clock);
+        manager.setCommitPolicy(CommitPolicy.IMMEDIATE);
+        manager.getThrottle().configure(10 * MINUTE, 0);
+
+        assertEquals(ChangeStatus.APPLIED, manager.changeIcon(fixture.names[1]));
+        assertEquals(ChangeStatus.DEFERRED, manager.changeIcon(fixture.names[2]));
+        // Only the latest target is held back.
+        assertEquals(ChangeStatus.DEFERRED, manager.changeIcon(fixture.names[0]));
+        assertEquals(ChangeStatus.SUPERSEDED, manager.getChangeStatus(fixture.names[2]));
+
+        clock.now += 10 * MINUTE;
+        manager.commitPendingChange();
+        assertEquals(ChangeStatus.APPLIED, manager.getChangeStatus(fixture.names[0]));
+    }
+}
@@ -0,0 +1,192 @@
+package com.reactnativechangeicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Activity;
+import android.content.ComponentName;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two managers sharing a state directory and a PackageManager stand in for two processes of the
+ * same app, each with its own component-state cache. In one JVM they share a {@link ProcessLock}
+ * instance; {@link ProcessLockTest} covers the file lock between real processes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class MultiProcessTest {
+    private static final Executor DIRECT = Runnable::run;
+
+    private final AliasFixture fixture = new AliasFixture(3);
+    private final InMemoryComponentStateBackend packageManager = new InMemoryComponentStateBackend();
+    private final File stateDir = AliasFixture.newStateDir();
+
+    private ChangeIconManager newProcess(CommitPolicy policy) {
+        final ChangeIconManager manager = fixture.newManager(
+            new CachingComponentStateBackend(packageManager), stateDir, DIRECT);
+        manager.setCommitPolicy(policy);
+        return manager;
+    }
+
+    private boolean isEnabled(ChangeIconManager manager, String icon) {
+        return packageManager.isEnabled(manager.getRegistry().get(icon));
+    }
+
+    @Test
+    public void writesAreNotElidedAfterAnotherProcessCommitted() throws Exception {
+        final String first = fixture.names[0];
+        final String second = fixture.names[1];
+        final ChangeIconManager a = newProcess(CommitPolicy.IMMEDIATE);
+        final ChangeIconManager b = newProcess(CommitPolicy.IMMEDIATE);
+
+        a.changeIcon(second);
+        b.changeIcon(first);
+        a.changeIcon(second);
+
+        assertEquals(ChangeStatus.APPLIED, a.getChangeStatus(second));
+        assertTrue(isEnabled(a, second));
+        assertFalse(isEnabled(a, first));
+    }
+
+    @Test
+    public void activityProcessCommitsChangesRequestedElsewhere() throws Exception {
+        final String first = fixture.names[0];
+        final String second = fixture.names[1];
+        final ChangeIconManager main = newProcess(CommitPolicy.ON_PAUSE);
+        final ChangeIconManager push = newProcess(CommitPolicy.ON_PAUSE);
+        final Activity activity = Robolectric.buildActivity(Activity.class).get();
+
+        assertEquals(first, main.getIcon());
+        assertEquals(ChangeStatus.PENDING, push.changeIcon(second));
+        assertFalse(isEnabled(main, second));
+
+        main.getCommitScheduler().onActivityPaused(activity);
+
+        assertEquals(ChangeStatus.APPLIED, push.getChangeStatus(second));
+        assertTrue(isEnabled(main, second));
+        assertFalse(isEnabled(main, first));
+    }
+
+    @Test
+    public void aCommitInOneProcessHoldsOffTheOther() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean blockNext = new AtomicBoolean(true);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        // Holds the first write open, like a slow binder call into system_server.
+        final ComponentStateBackend slow = new ComponentStateBackend() {
+            @Override
+            public int getComponentEnabledSetting(ComponentName component) {
+                return packageManager.getComponentEnabledSetting(component);
+            }
+
+            @Override
+            public void setComponentEnabledSettings(ComponentChanges changes) {
+                final int writers = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(writers, Math::max);
+                try {
+                    if (blockNext.compareAndSet(true, false)) {
+                        writing.countDown();
+                        release.await();
+                    }
+                    packageManager.setComponentEnabledSettings(changes);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+
+            @Override
+            public void invalidate() {
+            }
+        };
+        final ExecutorService aThread = Executors.newSingleThreadExecutor();
+        final ExecutorService bThread = Executors.newSingleThreadExecutor();
+        final ExecutorService caller = Executors.newSingleThreadExecutor();
+        final ChangeIconManager a = fixture.newManager(new CachingComponentStateBackend(slow), stateDir, aThread);
+        final ChangeIconManager b = fixture.newManager(new CachingComponentStateBackend(slow), stateDir, bThread);
+        a.setCommitPolicy(CommitPolicy.IMMEDIATE);
+        b.setCommitPolicy(CommitPolicy.IMMEDIATE);
+
+        a.changeIcon(fixture.names[1]);
+        assertTrue(writing.await(30, TimeUnit.SECONDS));
+        final Future<ChangeStatus> change = caller.submit(() -> b.changeIcon(fixture.names[2]));
+        try {
+            change.get(500, TimeUnit.MILLISECONDS);
+            fail("The change went through while another process was committing");
+        } catch (TimeoutException expected) {
+        }
+
+        release.countDown();
+        change.get(30, TimeUnit.SECONDS);
+        for (ExecutorService executor : new ExecutorService[] {caller, aThread, bThread}) {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, maxInFlight.get());
+        assertEquals(ChangeStatus.APPLIED, a.getChangeStatus(fixture.names[2]));
+        assertFalse(isEnabled(a, fixture.names[0]));
+        assertFalse(isEnabled(a, fixture.names[1]));
+        assertTrue(isEnabled(a, fixture.names[2]));
+    }
+
+    @Test
+    public void listenersHearAboutChangesFromAnotherProcess() throws Exception {
+        final String first = fixture.names[0];
+        final String second = fixture.names[1];
+        final ChangeIconManager main = newProcess(CommitPolicy.ON_PAUSE);
+        final ChangeIconManager push = newProcess(CommitPolicy.ON_PAUSE);
+        final Activity activity = Robolectric.buildActivity(Activity.class).get();
+        final List<String> events = new ArrayList<>();
+        assertEquals(first, main.getIcon());
+        main.addListener(new IconChangeListener() {
+            @Override
+            public void onIconChangeRequested(String icon) {
+                events.add("requested " + icon);
+            }
+
+            @Override
+            public void onIconChangeCommitted(String icon) {
+                events.add("committed " + icon);
+            }
+
+            @Override
+            public void onIconChangeFailed(String icon, String code) {
+                events.add("failed " + icon);
+            }
+        });
+
+        push.changeIcon(second);
+        main.getCommitScheduler().onActivityResumed(activity);
+        assertEquals(Collections.singletonList("requested " + second), events);
+
+        push.setCommitPolicy(CommitPolicy.IMMEDIATE);
+        main.getCommitScheduler().onActivityResumed(activity);
+        assertEquals(Arrays.asList("requested " + second, "committed " + second), events);
+    }
+}
@@ -0,0 +1,84 @@
+package com.reactnativechangeicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ProcessLockTest {
+    // Run as a single-file source program, so the child JVM needs no classpath.
+    private static final String HOLDER = ""
+        + "import java.io.RandomAccessFile;\n"
+        + "import java.nio.channels.FileChannel;\n"
+        + "\n"
+        + "public class Holder {\n"
+        + "    public static void main(String[] args) throws Exception {\n"
+        + "        FileChannel channel = new RandomAccessFile(args[0], \"rw\").getChannel();\n"
+        + "        channel.lock();\n"
+        + "        System.out.println(\"locked\");\n"
+        + "        while (System.in.read() >= 0) {\n"
+        + "        }\n"
+        + "    }\n"
+        + "}\n";
+
+    private final File stateDir = AliasFixture.newStateDir();
+
+    @Test
+    public void usersOfTheSameFileShareOneLock() {
+        assertSame(
+            ProcessLock.forFile(new File(stateDir, "lock")),
+            ProcessLock.forFile(new File(stateDir.getPath() + File.separator + "lock"))
+        );
+    }
+
+    @Test
+    public void waitsForAnotherProcess() throws Exception {
+        final File file = new File(stateDir, "lock");
+        final File source = new File(stateDir, "Holder.java");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(source), StandardCharsets.UTF_8)) {
+            writer.write(HOLDER);
+        }
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        final Process holder = new ProcessBuilder(java, source.getPath(), file.getPath())
+            .redirectErrorStream(true)
+            .start();
+        try {
+            final BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("locked", output.readLine());
+
+            final ProcessLock lock = ProcessLock.forFile(file);
+            final CountDownLatch acquired = new CountDownLatch(1);
+            final Thread waiter = new Thread(() -> {
+                lock.lock();
+                acquired.countDown();
+                lock.unlock();
+            });
+            waiter.start();
+            assertFalse(acquired.await(500, TimeUnit.MILLISECONDS));
+
+            // The holder exits at the end of its input, and its file lock goes with it.
+            holder.getOutputStream().close();
+            assertTrue(acquired.await(30, TimeUnit.SECONDS));
+            waiter.join();
+        } finally {
+            holder.destroy();
+        }
+    }
+}
@@ -1,7 +1,120 @@
-import { NativeModules } from "react-native";
+import { NativeEventEmitter, NativeModules } from "react-native";
 
-const changeIcon = (iconName) => NativeModules.ChangeIcon.changeIcon(iconName);
+// The native module is looked up on first use, so importing the library does not create it.
+let nativeModule = null;
 
-const getIcon = () => NativeModules.ChangeIcon.getIcon();
+const getNativeModule = () => {
+  if (nativeModule == null) {
+    nativeModule =
+      global.__turboModuleProxy != null
+        ? require("./src/NativeChangeIcon").default
+        : NativeModules.ChangeIcon;
+  }
+  return nativeModule;
+};
 
-export { changeIcon, getIcon };
+const IconChangeEvents = {
+  requested: "iconChangeRequested",
+  committed: "iconChangeCommitted",
+  failed: "iconChangeFailed",
+};
+
+let eventEmitter = null;
+
+const getEventEmitter = () => {
+  if (eventEmitter == null) {
+    eventEmitter = new NativeEventEmitter(getNativeModule());
+  }
+  return eventEmitter;
+};
+
+const addIconChangeListener = (eventName, listener) =>
+  getEventEmitter().addListener(eventName, listener);
+
+// getIcon results are cached until native reports a change, so repeated reads stay in JS.
+let cachedIcon = null;
+let cacheSubscriptions = null;
+
+const invalidateIcon = () => {
+  cachedIcon = null;
+};
+
+const getIcon = () => {
+  if (cacheSubscriptions == null) {
+    cacheSubscriptions = Object.values(IconChangeEvents).map((eventName) =>
+      addIconChangeListener(eventName, invalidateIcon)
+    );
+  }
+  if (cachedIcon == null) {
+    cachedIcon = getNativeModule().getIcon();
+    cachedIcon.catch(invalidateIcon);
+  }
+  return cachedIcon;
+};
+
+const requestIconChange = (iconName) =>
+  getNativeModule().changeIcon(iconName).then((result) => {
+    invalidateIcon();
+    return result;
+  });
+
+const changeIcon = (iconName) =>
+  requestIconChange(iconName).then((result) => result.icon);
+
+const changeIconIfCurrent = (expected, iconName) =>
+  getNativeModule().changeIconIfCurrent(expected, iconName).then((result) => {
+    invalidateIcon();
+    return result;
+  });
+
+const applyIconTransaction = ({ from = null, to, commitPolicy = null }) =>
+  getNativeModule().applyIconTransaction({ from, to, commitPolicy }).then((result) => {
+    invalidateIcon();
+    return result;
+  });
+
+const getIconSync = () => getNativeModule().getIconSync();
+
+const getAvailableIcons = () => getNativeModule().getAvailableIcons();
+
+const setCommitPolicy = (policy) => getNativeModule().setCommitPolicy(policy);
+
+const getIconState = () => getNativeModule().getIconState();
+
+const toMillis = (date) => (date instanceof Date ? date.getTime() : date);
+
+const setIconSchedule = (windows, fallback = null) =>
+  getNativeModule().setIconSchedule(
+    windows.map(({ icon, start, end, priority = 0 }) => ({
+      icon,
+      start: toMillis(start),
+      end: toMillis(end),
+      priority,
+    })),
+    fallback
+  );
+
+const clearIconSchedule = () => getNativeModule().clearIconSchedule();
+
+const setCommitThrottle = ({ minIntervalMs = 0, dailyBudget = 0 } = {}) =>
+  getNativeModule().setCommitThrottle(minIntervalMs, dailyBudget);
+
+const getMetrics = () => getNativeModule().getMetrics();
+
+export {
+  IconChangeEvents,
+  addIconChangeListener,
+  changeIcon,
+  requestIconChange,
+  changeIconIfCurrent,
+  applyIconTransaction,
+  getIcon,
+  getIconSync,
+  getAvailableIcons,
+  setCommitPolicy,
+  getIconState,
+  setIconSchedule,
+  clearIconSchedule,
+  setCommitThrottle,
+  getMetrics,
+};
@@ -22,7 +22,90 @@ RCT_REMAP_METHOD(getIcon, resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCT
     });
 }
 
+RCT_EXPORT_BLOCKING_SYNCHRONOUS_METHOD(getIconSync) {
+    __block NSString *currentIcon = nil;
+    if ([NSThread isMainThread]) {
+        currentIcon = [[UIApplication sharedApplication] alternateIconName];
+    } else {
+        dispatch_sync(dispatch_get_main_queue(), ^{
+            currentIcon = [[UIApplication sharedApplication] alternateIconName];
+        });
+    }
+    return currentIcon ? currentIcon : @"default";
+}
+
+RCT_REMAP_METHOD(getAvailableIcons, availableIconsResolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    NSDictionary *icons = [[NSBundle mainBundle] objectForInfoDictionaryKey:@"CFBundleIcons"];
+    NSDictionary *alternateIcons = icons[@"CFBundleAlternateIcons"];
+    resolve(alternateIcons ? [alternateIcons allKeys] : @[]);
+}
+
+RCT_REMAP_METHOD(setCommitPolicy, policy:(NSString *)policy resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    // Alternate icons are applied by the system immediately; there is nothing to defer on iOS.
+    resolve(policy);
+}
+
+RCT_REMAP_METHOD(getIconState, iconStateResolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    dispatch_async(dispatch_get_main_queue(), ^{
+        NSString *currentIcon = [[UIApplication sharedApplication] alternateIconName];
+        NSDictionary *bundleIcons = [[NSBundle mainBundle] objectForInfoDictionaryKey:@"CFBundleIcons"];
+        NSDictionary *alternateIcons = bundleIcons[@"CFBundleAlternateIcons"];
+        NSMutableDictionary *icons = [NSMutableDictionary dictionary];
+        for (NSString *name in alternateIcons) {
+            BOOL active = [name isEqualToString:currentIcon];
+            icons[name] = @{
+                @"enabledSetting": active ? @"enabled" : @"disabled",
+                @"enabledByDefault": @NO,
+                @"role": active ? @"committed" : @"inactive",
+            };
+        }
+        resolve(@{
+            @"icons": icons,
+            @"committed": currentIcon ? currentIcon : [NSNull null],
+            @"pending": [NSNull null],
+            @"updatedAt": @([[NSDate date] timeIntervalSince1970] * 1000),
+        });
+    });
+}
+
+RCT_REMAP_METHOD(setIconSchedule, windows:(NSArray *)windows fallback:(NSString *)fallback resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    reject(@"Error", @"NOT_SUPPORTED", nil);
+}
+
+RCT_REMAP_METHOD(clearIconSchedule, clearScheduleResolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    reject(@"Error", @"NOT_SUPPORTED", nil);
+}
+
+RCT_REMAP_METHOD(setCommitThrottle, minIntervalMillis:(double)minIntervalMillis dailyBudget:(double)dailyBudget resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    reject(@"Error", @"NOT_SUPPORTED", nil);
+}
+
+RCT_REMAP_METHOD(getMetrics, metricsResolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    reject(@"Error", @"NOT_SUPPORTED", nil);
+}
+
+// Required by NativeEventEmitter; icon change events are only emitted on Android.
+RCT_EXPORT_METHOD(addListener:(NSString *)eventName) {
+}
+
+RCT_EXPORT_METHOD(removeListeners:(double)count) {
+}
+
 RCT_REMAP_METHOD(changeIcon, iconName:(NSString *)iconName resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    [self changeIcon:iconName expected:nil resolver:resolve rejecter:reject];
+}
+
+RCT_REMAP_METHOD(changeIconIfCurrent, expected:(NSString *)expected iconName:(NSString *)iconName resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    [self changeIcon:iconName expected:expected resolver:resolve rejecter:reject];
+}
+
+// iOS applies alternate icons immediately, so the transaction's commitPolicy is ignored.
+RCT_REMAP_METHOD(applyIconTransaction, transaction:(NSDictionary *)transaction resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject) {
+    id from = transaction[@"from"];
+    [self changeIcon:transaction[@"to"] expected:(from == [NSNull null] ? nil : from) resolver:resolve rejecter:reject];
+}
+
+- (void)changeIcon:(NSString *)iconName expected:(NSString *)expected resolver:(RCTPromiseResolveBlock)resolve rejecter:(RCTPromiseRejectBlock)reject {
     dispatch_async(dispatch_get_main_queue(), ^{
         NSError *error = nil;
 
@@ -33,12 +116,17 @@ RCT_REMAP_METHOD(changeIcon, iconName:(NSString *)iconName resolver:(RCTPromiseR
 
         NSString *currentIcon = [[UIApplication sharedApplication] alternateIconName];
 
+        if (expected != nil && ![expected isEqualToString:(currentIcon ?: @"default")]) {
+            reject(@"Error", @"ICON_MISMATCH", error);
+            return;
+        }
+
         if ([iconName isEqualToString:currentIcon]) {
             reject(@"Error", @"ICON_ALREADY_USED", error);
             return;
         }
 
-        resolve(iconName);
+        resolve(@{ @"icon": iconName, @"status": @"applied" });
 
         [[UIApplication sharedApplication] setAlternateIconName:iconName completionHandler:^(NSError * _Nullable error) {
             return;
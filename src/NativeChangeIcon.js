@@ -0,0 +1,37 @@
+// @flow
+import type { TurboModule } from "react-native/Libraries/TurboModule/RCTExport";
+import { TurboModuleRegistry } from "react-native";
+
+export interface Spec extends TurboModule {
+  +getIcon: () => Promise<string>;
+  +getIconSync: () => string;
+  +changeIcon: (iconName: string) => Promise<{| icon: string, status: string |}>;
+  +changeIconIfCurrent: (
+    expected: string,
+    iconName: string
+  ) => Promise<{| icon: string, status: string |}>;
+  +applyIconTransaction: (transaction: {|
+    from?: ?string,
+    to: string,
+    commitPolicy?: ?string,
+  |}) => Promise<{| icon: string, status: string |}>;
+  +getAvailableIcons: () => Promise<Array<string>>;
+  +setCommitPolicy: (policy: string) => Promise<string>;
+  +getIconState: () => Promise<Object>;
+  +setIconSchedule: (
+    windows: Array<{|
+      icon: string,
+      start: number,
+      end: number,
+      priority?: ?number,
+    |}>,
+    fallback: ?string
+  ) => Promise<void>;
+  +clearIconSchedule: () => Promise<void>;
+  +setCommitThrottle: (minIntervalMillis: number, dailyBudget: number) => Promise<void>;
+  +getMetrics: () => Promise<Object>;
+  +addListener: (eventName: string) => void;
+  +removeListeners: (count: number) => void;
+}
+
+export default (TurboModuleRegistry.get<Spec>("ChangeIcon"): ?Spec);